@@ -0,0 +1,398 @@
+/**
+ * Negamax alpha-beta search over {@link PackedBoard} positions with
+ * iterative deepening and a wall-clock budget per move.
+ *
+ * A move that ends in the mover's store keeps the same player on move, so
+ * the child score is only negated when the side to move actually changes.
+ * Moves are tried in the order: best move of the previous iteration (or
+ * the move stored in the transposition table), moves that earn an extra
+ * turn, captures, then the rest.
+ *
+ * An instance keeps its own scratch arrays and is not thread-safe; use one
+ * per thread.
+ * @author Ashton Headley
+ */
+public class AlphaBetaSearch {
+
+    /**
+     * Score of a won game before adding the store margin
+     */
+    public static final int WIN_SCORE = 10_000;
+
+    /**
+     * Deepest iteration the search will attempt
+     */
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * How many nodes to visit between clock checks
+     */
+    private static final int CLOCK_MASK = 4095;
+
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private final long budgetNanos;
+    private final int maxDepth;
+    private final TranspositionTable table;
+    private EndgameTable endgame;
+
+    // per-ply scratch space so the search does not allocate
+    private final int[][] moves = new int[MAX_DEPTH + 1][MoveEngine.PITS_PER_SIDE];
+    private final int[][] keys = new int[MAX_DEPTH + 1][MoveEngine.PITS_PER_SIDE];
+    private final long[][] children = new long[MAX_DEPTH + 1][2];
+
+    private long nodes;
+
+    // this searcher's use of the table, kept here so threads sharing the table do not share counters
+    private long tableHits, tableMisses, tableCollisions, tableStores;
+
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopped;
+    private int startDepth = 1;
+    private int rootBest = -1;
+
+    /**
+     * Initialize the class
+     * @param budgetMillis wall-clock time allowed per move
+     * @param maxDepth deepest iteration to search, at most {@link #MAX_DEPTH}
+     */
+    public AlphaBetaSearch(long budgetMillis, int maxDepth) {
+        this(budgetMillis, maxDepth, null);
+    }
+
+    /**
+     * Initialize the class with a transposition table
+     * @param budgetMillis wall-clock time allowed per move
+     * @param maxDepth deepest iteration to search, at most {@link #MAX_DEPTH}
+     * @param table table to cache results in, or null to search without one
+     */
+    public AlphaBetaSearch(long budgetMillis, int maxDepth, TranspositionTable table) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        this.table = table;
+    }
+
+    /**
+     * Find the best move for the player to move in a model
+     * @param model the game
+     * @return the search outcome
+     */
+    public SearchResult search(Model model) {
+        long[] state = new long[2];
+        PackedBoard.fromModel(model, state);
+        return search(state[0], state[1]);
+    }
+
+    /**
+     * Find the best move for the player to move
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return the search outcome
+     */
+    public SearchResult search(long hi, long lo) {
+        long start = System.nanoTime();
+        deadline = start + budgetNanos;
+        nodes = 0;
+        aborted = false;
+        rootBest = -1;
+
+        int bestPit = firstLegal(hi, lo);
+        int bestScore = 0;
+        int completed = 0;
+        long key = Zobrist.hash(hi, lo);
+
+        for (int depth = startDepth; depth <= maxDepth && bestPit >= 0 && !stopped; ++depth) {
+            int score = negamax(hi, lo, key, depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                break;
+            }
+            bestPit = rootBest;
+            bestScore = score;
+            completed = depth;
+        }
+
+        return new SearchResult(bestPit, bestScore, completed, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Ask a running search to return as soon as possible. The search keeps
+     * the result of its last completed iteration.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Allow the next search to run after {@link #stop()} was called
+     */
+    public void clearStop() {
+        stopped = false;
+    }
+
+    /**
+     * Set the first depth of iterative deepening, so parallel helpers can
+     * work on different depths
+     * @param startDepth first depth to search
+     */
+    public void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(1, startDepth);
+    }
+
+    /**
+     * Look up positions with few stones left instead of searching them
+     * @param endgame a solved endgame table, or null
+     */
+    public void setEndgameTable(EndgameTable endgame) {
+        this.endgame = endgame;
+    }
+
+    /**
+     * Get the number of transposition table probes that found the position, over every search so far
+     * @return hit count
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Get the number of transposition table probes that did not find the position
+     * @return miss count
+     */
+    public long getTableMisses() {
+        return tableMisses;
+    }
+
+    /**
+     * Get the number of misses where the bucket held other positions
+     * @return collision count
+     */
+    public long getTableCollisions() {
+        return tableCollisions;
+    }
+
+    /**
+     * Get the number of results stored in the transposition table
+     * @return store count
+     */
+    public long getTableStores() {
+        return tableStores;
+    }
+
+    /**
+     * Score a position from the point of view of a player
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param player 1 or 2
+     * @return store difference, plus {@link #WIN_SCORE} for a finished game
+     */
+    protected int evaluate(long hi, long lo, int player) {
+        int margin = storeMargin(hi, lo, player);
+        return PackedBoard.isGameOver(hi, lo) ? finalScore(margin) : margin;
+    }
+
+    /**
+     * Get how far a player is ahead in stores
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param player 1 or 2
+     * @return the player's store minus the opponent's
+     */
+    private static int storeMargin(long hi, long lo, int player) {
+        return PackedBoard.get(hi, lo, MoveEngine.storeOf(player))
+                - PackedBoard.get(hi, lo, MoveEngine.storeOf(player == 1 ? 2 : 1));
+    }
+
+    /**
+     * Score a game whose final margin is known
+     * @param margin final store difference for the player to move
+     * @return the margin pushed beyond {@link #WIN_SCORE} for a win or loss
+     */
+    private static int finalScore(int margin) {
+        if (margin == 0) {
+            return 0;
+        }
+        return margin > 0 ? WIN_SCORE + margin : margin - WIN_SCORE;
+    }
+
+    /**
+     * Search a position
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param key Zobrist hash of the position
+     * @param depth remaining depth
+     * @param alpha lower bound
+     * @param beta upper bound
+     * @param ply distance from the root
+     * @return score from the point of view of the player to move
+     */
+    private int negamax(long hi, long lo, long key, int depth, int alpha, int beta, int ply) {
+        if ((++nodes & CLOCK_MASK) == 0 && (stopped || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        int side = PackedBoard.sideToMove(hi);
+        if (depth == 0 || PackedBoard.isGameOver(hi, lo)) {
+            return evaluate(hi, lo, side);
+        }
+
+        // the endgame table knows the exact result with few stones left
+        if (endgame != null && ply > 0) {
+            int remaining = endgame.probe(hi, lo);
+            if (remaining != EndgameTable.UNKNOWN) {
+                return finalScore(storeMargin(hi, lo, side) + remaining);
+            }
+        }
+
+        int hint = ply == 0 ? rootBest : -1;
+        int alphaOrig = alpha;
+        if (table != null) {
+            long entry = table.probe(key);
+            if (entry == 0) {
+                tableMisses++;
+                if (table.isBucketUsed(key)) {
+                    tableCollisions++;
+                }
+            } else {
+                tableHits++;
+                if (ply > 0) {
+                    hint = TranspositionTable.move(entry);
+                }
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int stored = TranspositionTable.score(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT) {
+                        return stored;
+                    } else if (bound == TranspositionTable.LOWER) {
+                        alpha = Math.max(alpha, stored);
+                    } else {
+                        beta = Math.min(beta, stored);
+                    }
+                    if (alpha >= beta) {
+                        return stored;
+                    }
+                }
+            }
+        }
+
+        int count = orderMoves(hi, lo, ply, hint);
+        int[] list = moves[ply];
+        long[] child = children[ply];
+        int best = -INFINITY;
+        int bestMove = -1;
+
+        for (int i = 0; i < count; ++i) {
+            int pit = list[i];
+            PackedBoard.applyMove(hi, lo, pit, child);
+            long childKey = Zobrist.update(key, hi, lo, child[0], child[1]);
+
+            int score;
+            if (PackedBoard.sideToMove(child[0]) == side) {
+                // extra turn, or a game ended in the mover's store: scored for the same player
+                score = negamax(child[0], child[1], childKey, depth - 1, alpha, beta, ply + 1);
+            } else {
+                score = -negamax(child[0], child[1], childKey, depth - 1, -beta, -alpha, ply + 1);
+            }
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMove = pit;
+                if (ply == 0) {
+                    rootBest = pit;
+                }
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        if (table != null) {
+            int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, depth, bound, best, bestMove);
+            tableStores++;
+        }
+        return best;
+    }
+
+    /**
+     * Fill the move list of a ply with the legal pits, best candidates first
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param ply distance from the root
+     * @param hint move to try first, or -1
+     * @return number of legal moves
+     */
+    private int orderMoves(long hi, long lo, int ply, int hint) {
+        int[] list = moves[ply];
+        int[] key = keys[ply];
+        int offset = MoveEngine.offsetOf(PackedBoard.sideToMove(hi));
+        int count = 0;
+
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            int stones = PackedBoard.get(hi, lo, offset + pit);
+            if (stones == 0) {
+                continue;
+            }
+            int score = moveKey(hi, lo, pit, stones);
+            if (pit == hint) {
+                score = Integer.MAX_VALUE;
+            }
+
+            // insertion sort by descending key
+            int j = count++;
+            while (j > 0 && key[j - 1] < score) {
+                list[j] = list[j - 1];
+                key[j] = key[j - 1];
+                --j;
+            }
+            list[j] = pit;
+            key[j] = score;
+        }
+        return count;
+    }
+
+    /**
+     * Estimate how promising a move is without playing it
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param pit pit 0-5 relative to the mover
+     * @param stones stones in the pit
+     * @return higher for extra turns, then larger captures
+     */
+    private static int moveKey(long hi, long lo, int pit, int stones) {
+        int landing = (pit + stones) % MoveEngine.CYCLE;
+        if (landing == MoveEngine.PITS_PER_SIDE) {
+            return 1000;
+        }
+        int captured = PackedBoard.captureSize(hi, lo, pit);
+        if (captured > 0) {
+            return 100 + captured;
+        }
+        return 0;
+    }
+
+    /**
+     * Find any legal move, used when the budget expires before depth 1 completes
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return a legal pit or -1
+     */
+    private static int firstLegal(long hi, long lo) {
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (PackedBoard.isLegal(hi, lo, pit)) {
+                return pit;
+            }
+        }
+        return -1;
+    }
+}
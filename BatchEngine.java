@@ -0,0 +1,319 @@
+import java.util.Arrays;
+
+/**
+ * Applies one move to each of many boards at once, for training and
+ * evaluating position scorers on large batches.
+ *
+ * Boards are stored as a structure of arrays: one array per slot, indexed
+ * by board, in the same absolute layout as {@link MoveEngine}. A move is
+ * applied in passes: the chosen pits are emptied and the move planned,
+ * the stones dealt and captured pits emptied one slot at a time, then the
+ * stores and turns updated and the games that ended swept. Where the
+ * stones go depends only on the player, the pit and the stone count modulo
+ * 13, so it is looked up in tables built once, and the passes over the
+ * slots run the same branch-free arithmetic for every board. The inner loops over
+ * the boards are simple enough for the JIT to unroll and vectorize.
+ *
+ * Boards are moved in blocks small enough for their working values to stay
+ * in the first-level cache through every pass.
+ *
+ * The rules are those of {@link PackedBoard#applyMove}: choosing an empty
+ * pit, or moving on a finished board, leaves the board as it was.
+ * @author Ashton Headley
+ */
+public class BatchEngine {
+
+    /**
+     * Boards moved through all passes together
+     */
+    private static final int BLOCK = 512;
+
+    /**
+     * Table entries per player: one for each pit and stone count modulo 13
+     */
+    private static final int MOVES = MoveEngine.PITS_PER_SIDE * MoveEngine.CYCLE;
+
+    /**
+     * Plan bit saying full laps reach a slot other than a store
+     */
+    private static final int LAPS_ANY = 1 << 30;
+
+    // for each player, pit and remainder:
+    // PLAN: the slots receiving a stone of the remainder (bits 0-13), and full laps
+    // reaching store 1 (bit 14) and store 2 (bit 15); bits 16-29 are left for captures
+    // STEP: the mover's pit the last stone lands in (bits 0-3) and the pit facing it
+    // (bits 4-7), the stones of the remainder landing in each (bits 8 and 9), and 3 if
+    // the turn passes (bits 10-11); the mover's store twice if the last stone lands elsewhere
+    // CLEAR: the two pits a capture empties, as plan bits, or 0 if there is no capture
+    private static final int[] PLAN = new int[2 * MOVES];
+    private static final int[] STEP = new int[2 * MOVES];
+    private static final int[] CLEAR = new int[2 * MOVES];
+
+    static {
+        for (int two = 0; two < 2; ++two) {
+            int offset = two * (MoveEngine.STORE_ONE + 1);
+            int store = offset + MoveEngine.STORE_ONE;
+            for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+                for (int rest = 0; rest < MoveEngine.CYCLE; ++rest) {
+                    // walk the mover's cycle: own pits and store, then the opponent's pits
+                    int hits = 0, cycle = pit;
+                    for (int i = 0; i < rest; ++i) {
+                        cycle = (cycle + 1) % MoveEngine.CYCLE;
+                        hits |= 1 << ((cycle + offset) % MoveEngine.SLOTS);
+                    }
+                    int move = two * MOVES + pit * MoveEngine.CYCLE + rest;
+                    int target = cycle < MoveEngine.PITS_PER_SIDE ? cycle + offset : store;
+                    int facing = target == store ? store : 12 - target;
+                    PLAN[move] = hits | LAPS_ANY | (two == 0 ? 1 << 14 : 1 << 15);
+                    STEP[move] = target | facing << 4 | ((hits >>> target) & 1) << 8
+                            | ((hits >>> facing) & 1) << 9 | (cycle == MoveEngine.PITS_PER_SIDE ? 0 : 3) << 10;
+                    CLEAR[move] = target == store ? 0 : ((1 << target) | (1 << facing)) << 16;
+                }
+            }
+        }
+    }
+
+    private final int capacity;
+    private final int[][] pits;
+    private final int[] player;
+    private final int[] winner;
+
+    // per-board working values of the move being applied
+    private final int[] plan, laps, turn, gain, over;
+
+    /**
+     * Initialize the class
+     * @param capacity number of boards
+     */
+    public BatchEngine(int capacity) {
+        this.capacity = capacity;
+        pits = new int[MoveEngine.SLOTS][capacity];
+        player = new int[capacity];
+        winner = new int[capacity];
+        plan = new int[capacity];
+        laps = new int[capacity];
+        turn = new int[capacity];
+        gain = new int[capacity];
+        over = new int[capacity];
+        Arrays.fill(player, 1);
+        Arrays.fill(winner, -1);
+    }
+
+    /**
+     * Get the number of boards
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Put every board at the start of a game
+     * @param stonesPerPit stones per pit
+     */
+    public void reset(int stonesPerPit) {
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            Arrays.fill(pits[slot], slot == MoveEngine.STORE_ONE || slot == MoveEngine.STORE_TWO ? 0 : stonesPerPit);
+        }
+        Arrays.fill(player, 1);
+        Arrays.fill(winner, -1);
+    }
+
+    /**
+     * Set one board
+     * @param board board index
+     * @param absolutePits stones per slot in the {@link MoveEngine} layout
+     * @param playerToMove 1 or 2
+     */
+    public void setPosition(int board, int[] absolutePits, int playerToMove) {
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            pits[slot][board] = absolutePits[slot];
+        }
+        player[board] = playerToMove;
+        winner[board] = -1;
+    }
+
+    /**
+     * Set one board from a packed position
+     * @param board board index
+     * @param hi player 2's side
+     * @param lo player 1's side
+     */
+    public void setPosition(int board, long hi, long lo) {
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            pits[slot][board] = PackedBoard.get(hi, lo, slot);
+        }
+        player[board] = PackedBoard.sideToMove(hi);
+        winner[board] = PackedBoard.winner(hi, lo);
+    }
+
+    /**
+     * Copy every board of another engine of the same capacity
+     * @param other the boards to copy
+     */
+    public void copyFrom(BatchEngine other) {
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            System.arraycopy(other.pits[slot], 0, pits[slot], 0, capacity);
+        }
+        System.arraycopy(other.player, 0, player, 0, capacity);
+        System.arraycopy(other.winner, 0, winner, 0, capacity);
+    }
+
+    /**
+     * Get the stones in a slot of a board
+     * @param board board index
+     * @param slot absolute slot index
+     * @return stones
+     */
+    public int get(int board, int slot) {
+        return pits[slot][board];
+    }
+
+    /**
+     * Get the player to move on a board
+     * @param board board index
+     * @return 1 or 2
+     */
+    public int getPlayer(int board) {
+        return player[board];
+    }
+
+    /**
+     * Get the result of a board
+     * @param board board index
+     * @return -1 while the game goes on, 0 for a tie, otherwise the winning player
+     */
+    public int getWinner(int board) {
+        return winner[board];
+    }
+
+    /**
+     * Get the array holding one slot of every board. It is live, do not modify it.
+     * @param slot absolute slot index
+     * @return stones in the slot, indexed by board
+     */
+    public int[] getSlot(int slot) {
+        return pits[slot];
+    }
+
+    /**
+     * Apply one move to each of the first boards
+     * @param moves pit 0-5 relative to the player to move, for each board
+     * @param count number of boards to move, from board 0
+     */
+    public void apply(int[] moves, int count) {
+        // a block's working values stay in the first-level cache through all passes
+        for (int from = 0; from < count; from += BLOCK) {
+            int to = Math.min(count, from + BLOCK);
+            prepare(moves, from, to);
+            sow(from, to);
+            if (finish(from, to) != 0) {
+                sweep(from, to);
+            }
+        }
+    }
+
+    /**
+     * Empty the chosen pit of every board, look up where its stones go and
+     * decide whether the last one captures
+     */
+    private void prepare(int[] moves, int from, int to) {
+        for (int b = from; b < to; ++b) {
+            int pit = moves[b];
+            int two = -(player[b] - 1);
+            int[] row = pits[pit + (two & (MoveEngine.STORE_ONE + 1))];
+
+            // finished boards sow nothing
+            int n = row[b] & (winner[b] >> 31);
+            row[b] -= n;
+            int lapCount = (n * 5042) >>> 16;  // n / 13 for n < 256
+            int move = (two & MOVES) + pit * MoveEngine.CYCLE + n - lapCount * MoveEngine.CYCLE;
+
+            // the last pit and the one facing it as they will be after sowing
+            int step = STEP[move], clear = CLEAR[move];
+            int last = pits[step & 15][b] + lapCount + ((step >>> 8) & 1);
+            int faced = pits[(step >>> 4) & 15][b] + lapCount + ((step >>> 9) & 1);
+            int capture = (-clear >> 31) & equal(last, 1) & (-faced >> 31);
+
+            plan[b] = PLAN[move] | (clear & capture);
+            laps[b] = lapCount;
+            turn[b] = (step >>> 10) & (-n >> 31);
+            gain[b] = (last + faced) & capture;
+        }
+    }
+
+    /**
+     * Deal the planned stones and empty the captured pits, one slot of
+     * every board at a time
+     */
+    private void sow(int from, int to) {
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            int[] row = pits[slot];
+            int lapShift = slot == MoveEngine.STORE_ONE ? 14 : slot == MoveEngine.STORE_TWO ? 15 : 30;
+            int clearShift = slot + 16;
+            for (int b = from; b < to; ++b) {
+                int p = plan[b];
+                int v = row[b] + ((p >>> slot) & 1) + (laps[b] & -((p >>> lapShift) & 1));
+                row[b] = v & (((p >>> clearShift) & 1) - 1);
+            }
+        }
+    }
+
+    /**
+     * Add captures to the mover's store and pass the turn unless the last
+     * stone landed in the mover's store. Finish the games where a row is
+     * now empty: their stores receive the stones left in the rows and
+     * their winner is recorded.
+     * @return nonzero if any game finished and its rows need sweeping
+     */
+    private int finish(int from, int to) {
+        int[] a0 = pits[0], a1 = pits[1], a2 = pits[2], a3 = pits[3], a4 = pits[4], a5 = pits[5];
+        int[] b0 = pits[7], b1 = pits[8], b2 = pits[9], b3 = pits[10], b4 = pits[11], b5 = pits[12];
+        int[] storeOne = pits[MoveEngine.STORE_ONE], storeTwo = pits[MoveEngine.STORE_TWO];
+        int any = 0;
+        for (int b = from; b < to; ++b) {
+            int rowOne = a0[b] + a1[b] + a2[b] + a3[b] + a4[b] + a5[b];
+            int rowTwo = b0[b] + b1[b] + b2[b] + b3[b] + b4[b] + b5[b];
+            int end = equal(rowOne, 0) | equal(rowTwo, 0);
+            int mover = player[b];
+            int two = -(mover - 1);
+            int one = storeOne[b] + (gain[b] & ~two) + (rowOne & end);
+            int other = storeTwo[b] + (gain[b] & two) + (rowTwo & end);
+            storeOne[b] = one;
+            storeTwo[b] = other;
+
+            // 1 ^ 3 is 2 and 2 ^ 3 is 1
+            player[b] = mover ^ turn[b];
+
+            int result = ((other - one) >>> 31) | (((one - other) >>> 31) << 1);
+            winner[b] ^= (winner[b] ^ result) & end;
+            over[b] = end;
+            any |= end;
+        }
+        return any;
+    }
+
+    /**
+     * Empty the rows of the games that just finished; {@link #finish} has
+     * already added their stones to the stores
+     */
+    private void sweep(int from, int to) {
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            if (slot == MoveEngine.STORE_ONE || slot == MoveEngine.STORE_TWO) {
+                continue;
+            }
+            int[] row = pits[slot];
+            for (int b = from; b < to; ++b) {
+                row[b] &= ~over[b];
+            }
+        }
+    }
+
+    /**
+     * Compare two small non-negative numbers without a branch
+     * @return -1 if they are equal, otherwise 0
+     */
+    private static int equal(int a, int b) {
+        return ((a ^ b) - 1) >> 31;
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Checks {@link BatchEngine} against {@link PackedBoard#applyMove} and
+ * measures it against playing the same moves one board at a time with
+ * {@link Model#doPlayerTurn(int)}.
+ *
+ * The check covers positions from random games and random deals of
+ * stones, including pits big enough to sow more than one lap. Both
+ * timings include putting the boards back to their starting positions
+ * before every round, so each round plays the same moves.
+ *
+ * Usage: java BatchEngineBenchmark [boards] [millis per run] [stones]
+ * @author Ashton Headley
+ */
+public class BatchEngineBenchmark {
+
+    /**
+     * Keeps results alive so the JIT cannot remove the benchmarked work
+     */
+    static volatile long sink;
+
+    /**
+     * Run the check and the benchmark from the command line
+     * @param args optional number of boards, run length in milliseconds and stones per pit
+     */
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 3000;
+        int stones = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        int mismatches = check(1_000_000, new SplittableRandom(7));
+        System.out.printf("checked 1000000 moves against PackedBoard: %d mismatches%n", mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+
+        int[][] positions = new int[boards][];
+        int[] players = new int[boards];
+        int[] pits = new int[boards];
+        ModelBenchmark.samplePositions(stones, positions, players, pits);
+
+        BatchEngine start = new BatchEngine(boards);
+        for (int b = 0; b < boards; ++b) {
+            start.setPosition(b, positions[b], players[b]);
+        }
+        BatchEngine batch = new BatchEngine(boards);
+        Model[] models = new Model[boards];
+        for (int b = 0; b < boards; ++b) {
+            models[b] = new Model();
+        }
+
+        System.out.printf("%d boards, %d stones per pit%n", boards, stones);
+        for (int round = 0; round < 2; ++round) {
+            // the first round is warm-up
+            double model = measure(millis, () -> {
+                long sum = 0;
+                for (int b = 0; b < boards; ++b) {
+                    models[b].setPosition(positions[b], players[b]);
+                    models[b].doPlayerTurn(pits[b]);
+                    sum += models[b].getWinningPlayer();
+                }
+                return sum;
+            }) * boards;
+            double engine = measure(millis, () -> {
+                batch.copyFrom(start);
+                batch.apply(pits, boards);
+                return batch.getSlot(MoveEngine.STORE_ONE)[0];
+            }) * boards;
+            if (round > 0) {
+                System.out.printf("Model.doPlayerTurn %,15.0f board-moves/s%n", model);
+                System.out.printf("BatchEngine.apply  %,15.0f board-moves/s  (%.1fx)%n", engine, engine / model);
+            }
+        }
+    }
+
+    /**
+     * Apply random moves to random boards with both engines and compare them
+     * @param moves number of boards to move
+     * @param random position source
+     * @return number of boards that differ
+     */
+    static int check(int moves, SplittableRandom random) {
+        int size = 1024;
+        BatchEngine batch = new BatchEngine(size);
+        long[] his = new long[size], los = new long[size];
+        int[] chosen = new int[size];
+        long[] result = new long[2];
+        int[] deal = new int[MoveEngine.SLOTS];
+        int mismatches = 0;
+
+        for (int done = 0; done < moves; done += size) {
+            for (int b = 0; b < size; ++b) {
+                // alternate positions from play with random deals of up to 60 stones
+                if ((b & 1) == 0) {
+                    PackedBoard.initial(3 + random.nextInt(4), result);
+                    for (int plies = random.nextInt(60); plies > 0 && !PackedBoard.isGameOver(result[0], result[1]); --plies) {
+                        PackedBoard.applyMove(result[0], result[1], random.nextInt(MoveEngine.PITS_PER_SIDE), result);
+                    }
+                } else {
+                    // deal again until both rows have stones, as in a game still being played
+                    do {
+                        Arrays.fill(deal, 0);
+                        for (int s = random.nextInt(61); s > 0; --s) {
+                            int slot = random.nextInt(MoveEngine.SLOTS);
+                            if (deal[slot] < 63 || slot == MoveEngine.STORE_ONE || slot == MoveEngine.STORE_TWO) {
+                                deal[slot]++;
+                            }
+                        }
+                        toPacked(deal, 1 + random.nextInt(2), result);
+                    } while (PackedBoard.isGameOver(result[0], result[1]));
+                }
+                his[b] = result[0];
+                los[b] = result[1];
+                chosen[b] = random.nextInt(MoveEngine.PITS_PER_SIDE);
+                batch.setPosition(b, his[b], los[b]);
+            }
+            batch.apply(chosen, size);
+
+            for (int b = 0; b < size; ++b) {
+                PackedBoard.applyMove(his[b], los[b], chosen[b], result);
+                boolean same = batch.getPlayer(b) == PackedBoard.sideToMove(result[0])
+                        && batch.getWinner(b) == PackedBoard.winner(result[0], result[1]);
+                for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+                    same &= batch.get(b, slot) == PackedBoard.get(result[0], result[1], slot);
+                }
+                if (!same && mismatches++ < 5) {
+                    System.out.println("mismatch: " + PackedBoard.toString(his[b], los[b]) + " pit " + chosen[b]);
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Pack an absolute board
+     * @param pits stones per slot
+     * @param player player to move
+     * @param result receives {hi, lo}
+     */
+    private static void toPacked(int[] pits, int player, long[] result) {
+        long hi = 0, lo = 0;
+        for (int i = 0; i <= MoveEngine.PITS_PER_SIDE; ++i) {
+            int shift = i * PackedBoard.PIT_BITS;
+            lo |= (long) pits[i] << shift;
+            hi |= (long) pits[i + MoveEngine.STORE_ONE + 1] << shift;
+        }
+        if (player == 2) {
+            hi |= 1L << PackedBoard.SIDE_SHIFT;
+        }
+        result[0] = hi;
+        result[1] = lo;
+    }
+
+    /**
+     * Run a round of work repeatedly for a while
+     * @param millis how long to run
+     * @param round the work
+     * @return rounds per second
+     */
+    private static double measure(long millis, LongSupplier round) {
+        long rounds = 0, sum = 0;
+        long start = System.nanoTime();
+        long end = start + millis * 1_000_000L;
+        long now;
+        do {
+            sum += round.getAsLong();
+            ++rounds;
+            now = System.nanoTime();
+        } while (now < end);
+        sink += sum;
+        return rounds / ((now - start) / 1e9);
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays many games between two computer players without a display.
+ *
+ * Games are played directly on {@link Model} on a pool of worker threads.
+ * Results are printed once a second while the run is going and once more
+ * at the end. Nothing here touches java.awt, so it runs on machines
+ * without a screen.
+ *
+ * Usage: java BatchRunner [games] [threads] [player1] [player2] [stones] [record file]
+ * where a player is random, greedy, search[:millis], mcts[:millis] or solved:directory,
+ * a searching player using a {@link SolvedDatabase}. When a record file
+ * is given, every game is saved to it with {@link GameRecordWriter}.
+ * Stones can also be given as pits x stones, e.g. 8x5, for boards other than
+ * 6 pits a side; only random players and no record file can be used on those.
+ * @author Ashton Headley
+ */
+public class BatchRunner {
+
+    private final int games;
+    private final int threads;
+    private final String playerOne, playerTwo;
+    private final int stones;
+    private final BoardGeometry geometry;
+    private GameRecordWriter recorder;
+
+    private final AtomicLong nextGame = new AtomicLong();
+    private final LongAdder played = new LongAdder();
+    private final LongAdder oneWins = new LongAdder();
+    private final LongAdder twoWins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder margin = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+
+    /**
+     * Initialize the class
+     * @param games number of games to play
+     * @param threads number of worker threads
+     * @param playerOne player 1's type
+     * @param playerTwo player 2's type
+     * @param stones stones per pit
+     */
+    public BatchRunner(int games, int threads, String playerOne, String playerTwo, int stones) {
+        this(games, threads, playerOne, playerTwo, BoardGeometry.STANDARD, stones);
+    }
+
+    /**
+     * Initialize the class for a board of any size
+     * @param games number of games to play
+     * @param threads number of worker threads
+     * @param playerOne player 1's type
+     * @param playerTwo player 2's type
+     * @param geometry the board size
+     * @param stones stones per pit
+     * @throws IllegalArgumentException if a player cannot play on the board
+     */
+    public BatchRunner(int games, int threads, String playerOne, String playerTwo, BoardGeometry geometry, int stones) {
+        // every player but the random one works on packed positions, which only the standard board has
+        if (!geometry.isStandard() && !(playerOne.equals("random") && playerTwo.equals("random"))) {
+            throw new IllegalArgumentException("only random players can play on a board with " + geometry);
+        }
+        this.games = games;
+        this.threads = threads;
+        this.playerOne = playerOne;
+        this.playerTwo = playerTwo;
+        this.geometry = geometry;
+        this.stones = stones;
+    }
+
+    /**
+     * Run the batch from the command line
+     * @param args optional games, threads, player types, stones per pit or pits x stones and record file
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String one = args.length > 2 ? args[2] : "random";
+        String two = args.length > 3 ? args[3] : "random";
+        String size = args.length > 4 ? args[4] : "4";
+        int x = size.indexOf('x');
+        BoardGeometry geometry = x < 0 ? BoardGeometry.STANDARD : BoardGeometry.of(Integer.parseInt(size.substring(0, x)));
+        int stones = Integer.parseInt(size.substring(x + 1));
+
+        BatchRunner runner = new BatchRunner(games, threads, one, two, geometry, stones);
+        if (args.length > 5) {
+            try (GameRecordWriter recorder = new GameRecordWriter(Paths.get(args[5]))) {
+                runner.setRecorder(recorder);
+                runner.run();
+            }
+        } else {
+            runner.run();
+        }
+    }
+
+    /**
+     * Save every finished game
+     * @param recorder where to write the games, or null to not save them
+     * @throws IllegalArgumentException if the board is not the standard size, which records assume
+     */
+    public void setRecorder(GameRecordWriter recorder) {
+        if (recorder != null && !geometry.isStandard()) {
+            throw new IllegalArgumentException("game records are only kept for the standard board");
+        }
+        this.recorder = recorder;
+    }
+
+    /**
+     * Create a player from its name
+     * @param type random, greedy, search[:millis], mcts[:millis] or solved:directory
+     * @param player the side it plays
+     * @param seed random seed
+     * @return the player
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public static MancalaPlayer createPlayer(String type, int player, long seed) {
+        if (type.equals("random")) {
+            return new RandomPlayer(seed);
+        } else if (type.equals("greedy")) {
+            return new GreedyPlayer();
+        } else if (type.startsWith("search")) {
+            int colon = type.indexOf(':');
+            long millis = colon < 0 ? 10 : Long.parseLong(type.substring(colon + 1));
+            return new ComputerPlayer(player, millis, 4);
+        } else if (type.startsWith("mcts")) {
+            int colon = type.indexOf(':');
+            long millis = colon < 0 ? 10 : Long.parseLong(type.substring(colon + 1));
+            return new MonteCarloPlayer(player, millis, 1, 200_000, seed);
+        } else if (type.startsWith("solved:")) {
+            ComputerPlayer computer = new ComputerPlayer(player, 10, 4);
+            try {
+                computer.setEndgameTable(SolvedDatabase.open(Paths.get(type.substring(7)), 256));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return computer;
+        }
+        throw new IllegalArgumentException("unknown player type: " + type);
+    }
+
+    /**
+     * Play all the games and print the statistics
+     */
+    public void run() throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; ++i) {
+            final long seed = i;
+            pool.execute(() -> work(seed));
+        }
+        pool.shutdown();
+
+        while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+            System.out.println(report(System.nanoTime() - start));
+        }
+        System.out.println(report(System.nanoTime() - start));
+    }
+
+    /**
+     * Play games on one worker thread until all games are taken
+     * @param seed seed for this worker's random players
+     */
+    private void work(long seed) {
+        MancalaPlayer one = createPlayer(playerOne, 1, seed * 2);
+        MancalaPlayer two = createPlayer(playerTwo, 2, seed * 2 + 1);
+
+        int[] moves = new int[64];
+        while (nextGame.getAndIncrement() < games) {
+            Model model = new Model(geometry);
+            model.setInitialStonesPerPit(stones);
+            int count = 0;
+
+            while (model.getWinningPlayer() < 0) {
+                MancalaPlayer mover = model.getCurrentPlayer() == 1 ? one : two;
+                int pit = mover.chooseMove(model);
+                model.doPlayerTurn(pit);
+                model.confirmTurn();
+                if (count == moves.length) {
+                    moves = Arrays.copyOf(moves, count * 2);
+                }
+                moves[count++] = pit;
+            }
+            record(model, count);
+            if (recorder != null) {
+                save(moves, count);
+            }
+        }
+    }
+
+    /**
+     * Add a finished game to the statistics
+     * @param model the finished game
+     * @param count number of moves played
+     */
+    private void record(Model model, int count) {
+        int[] pits = model.getEngine().getPits();
+        int winner = model.getWinningPlayer();
+        if (winner == 1) {
+            oneWins.increment();
+        } else if (winner == 2) {
+            twoWins.increment();
+        } else {
+            draws.increment();
+        }
+        margin.add(pits[geometry.getStoreOne()] - pits[geometry.getStoreTwo()]);
+        moves.add(count);
+        played.increment();
+    }
+
+    /**
+     * Write a finished game to the record file
+     * @param moves the pits chosen
+     * @param count number of moves
+     */
+    private void save(int[] moves, int count) {
+        synchronized (recorder) {
+            try {
+                recorder.writeGame(stones, GameRecordWriter.STYLE_DEFAULT, moves, count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Describe the statistics so far
+     * @param elapsedNanos time since the run started
+     * @return one line of statistics
+     */
+    private String report(long elapsedNanos) {
+        long n = played.sum();
+        double seconds = elapsedNanos / 1e9;
+        double divisor = Math.max(1, n);
+        return String.format("%s vs %s: %d games  p1 %.2f%%  p2 %.2f%%  draw %.2f%%  margin %+.2f  moves %.1f  %.0f games/s",
+                playerOne, playerTwo, n,
+                100.0 * oneWins.sum() / divisor, 100.0 * twoWins.sum() / divisor, 100.0 * draws.sum() / divisor,
+                margin.sum() / divisor, moves.sum() / divisor, n / seconds);
+    }
+}
@@ -89,9 +89,9 @@ public class BeachBoard extends BoardStrategy {
         g2.draw(store1);
         g2.drawString("Mancala" + game.getOtherPlayer(), outerPadding+innerPadding, (outerPadding*3) + resize);
 
-        /* second mancala must be after all six boxes,
+        /* second mancala must be after all the boxes,
          * plus the first mancala, plus padding */
-        int x = outerPadding + storeWidth + 6 * ( innerPadding + pitWidth );
+        int x = outerPadding + storeWidth + game.getGeometry().getPitsPerSide() * ( innerPadding + pitWidth );
 
         g2.setColor(getOtherPlayerColor());
         RoundRectangle2D store2 = new RoundRectangle2D.Double(
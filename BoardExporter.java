@@ -0,0 +1,261 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Exports board images of many positions without a display, for replays
+ * and reports.
+ *
+ * Positions are rendered by {@link BoardRenderer}s, one per worker thread.
+ * They can be written as numbered PNG files, written as one animated GIF,
+ * or only rendered to measure how fast that is. The GIF frames are
+ * rendered in parallel and written in order as they become ready, so only
+ * a few frames are held in memory at a time.
+ *
+ * Usage: java -Djava.awt.headless=true BoardExporter [games] [directory] [default|beach] [threads] [png|gif|none]
+ * The positions come from games between a greedy and a random player.
+ * @author Ashton Headley
+ */
+public class BoardExporter {
+
+    /**
+     * Time each GIF frame is shown, in milliseconds
+     */
+    public static final int FRAME_DELAY_MILLIS = 500;
+
+    private final BoardStrategy strategy;
+    private final int threads;
+    private final ThreadLocal<BoardRenderer> renderers;
+    private final ThreadLocal<PngEncoder> encoders = ThreadLocal.withInitial(PngEncoder::new);
+
+    /**
+     * Initialize the class
+     * @param strategy the board style to draw
+     * @param threads number of worker threads
+     */
+    public BoardExporter(BoardStrategy strategy, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.strategy = strategy.getCopy();
+        this.threads = threads;
+        this.renderers = ThreadLocal.withInitial(() -> new BoardRenderer(this.strategy));
+    }
+
+    /**
+     * Export positions from the command line
+     * @param args optional games, directory, board style, thread count and format
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Path directory = Paths.get(args.length > 1 ? args[1] : "frames");
+        String style = args.length > 2 ? args[2] : "default";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String format = args.length > 4 ? args[4] : "png";
+
+        BoardStrategy strategy = style.equals("beach") ? new BeachBoard(new Model()) : new DefaultBoard(new Model());
+        BoardExporter exporter = new BoardExporter(strategy, threads);
+        List<Model> positions = playGames(games, 4);
+        System.out.println(positions.size() + " positions from " + games + " games");
+
+        long start = System.nanoTime();
+        if (format.equals("png")) {
+            Files.createDirectories(directory);
+            exporter.writePngs(positions, directory);
+        } else if (format.equals("gif")) {
+            Files.createDirectories(directory);
+            exporter.writeAnimation(positions, directory.resolve("game.gif"), FRAME_DELAY_MILLIS);
+        } else {
+            exporter.renderAll(positions);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d frames in %.2f s, %.0f frames/s on %d threads%n",
+                format, positions.size(), seconds, positions.size() / seconds, threads);
+    }
+
+    /**
+     * Play games and keep every position a player was asked to move in
+     * @param games number of games
+     * @param stones stones per pit
+     * @return the positions, each game from its start to its end
+     */
+    public static List<Model> playGames(int games, int stones) {
+        List<Model> positions = new ArrayList<>();
+        for (int game = 0; game < games; ++game) {
+            MancalaPlayer one = new GreedyPlayer();
+            MancalaPlayer two = new RandomPlayer(game);
+            Model model = new Model();
+            model.setInitialStonesPerPit(stones);
+            positions.add(new Model(model));
+
+            while (model.getWinningPlayer() < 0) {
+                MancalaPlayer mover = model.getCurrentPlayer() == 1 ? one : two;
+                model.doPlayerTurn(mover.chooseMove(model));
+                model.confirmTurn();
+                positions.add(new Model(model));
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Render every position without keeping the images, to measure rendering alone
+     * @param positions the positions
+     */
+    public void renderAll(List<Model> positions) throws Exception {
+        forEachStriped(positions.size(), i -> renderers.get().render(positions.get(i)));
+    }
+
+    /**
+     * Write every position to its own PNG file, named frame-000000.png and so on
+     * @param positions the positions
+     * @param directory existing directory to write to
+     * @throws IOException if a file cannot be written
+     */
+    public void writePngs(List<Model> positions, Path directory) throws Exception {
+        forEachStriped(positions.size(), i -> {
+            BufferedImage image = renderers.get().render(positions.get(i));
+            Path file = directory.resolve(String.format("frame-%06d.png", i));
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                encoders.get().write(image, out);
+            }
+        });
+    }
+
+    /**
+     * Write the positions as the frames of one animated GIF that repeats forever
+     * @param positions the positions in the order to show them
+     * @param file the file to write
+     * @param delayMillis time each frame is shown
+     * @throws IOException if the file cannot be written
+     */
+    public void writeAnimation(List<Model> positions, Path file, int delayMillis) throws Exception {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        IIOMetadata metadata = animationMetadata(writer, param, delayMillis);
+
+        // the output stream overwrites in place and would leave the end of a longer old file
+        Files.deleteIfExists(file);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+
+            // keep a few frames rendering ahead of the writer
+            ArrayDeque<Future<BufferedImage>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < positions.size() || !pending.isEmpty()) {
+                while (next < positions.size() && pending.size() < threads * 2) {
+                    Model position = positions.get(next++);
+                    pending.add(pool.submit(() -> encoders.get().toIndexed(renderers.get().render(position))));
+                }
+                writer.writeToSequence(new IIOImage(pending.remove().get(), null, metadata), param);
+            }
+            writer.endWriteSequence();
+        } finally {
+            pool.shutdownNow();
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Describe an animation frame: shown for a delay, looping forever
+     * @param writer the GIF writer
+     * @param param the write parameters
+     * @param delayMillis time each frame is shown
+     * @return metadata to write every frame with
+     * @throws IOException if the writer does not accept the metadata
+     */
+    private static IIOMetadata animationMetadata(ImageWriter writer, ImageWriteParam param, int delayMillis)
+            throws IOException {
+        ImageTypeSpecifier type = ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB);
+        IIOMetadata metadata = writer.getDefaultImageMetadata(type, param);
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+        IIOMetadataNode control = child(root, "GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Integer.toString(delayMillis / 10));
+        control.setAttribute("transparentColorIndex", "0");
+
+        // the NETSCAPE2.0 extension with a loop count of 0 repeats forever
+        IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+        loop.setAttribute("applicationID", "NETSCAPE");
+        loop.setAttribute("authenticationCode", "2.0");
+        loop.setUserObject(new byte[] {1, 0, 0});
+        child(root, "ApplicationExtensions").appendChild(loop);
+
+        metadata.setFromTree(format, root);
+        return metadata;
+    }
+
+    /**
+     * Find a metadata node's child, adding it if it is missing
+     * @param parent the node
+     * @param name the child's name
+     * @return the child
+     */
+    private static IIOMetadataNode child(IIOMetadataNode parent, String name) {
+        for (int i = 0; i < parent.getLength(); ++i) {
+            if (parent.item(i).getNodeName().equals(name)) {
+                return (IIOMetadataNode) parent.item(i);
+            }
+        }
+        IIOMetadataNode node = new IIOMetadataNode(name);
+        parent.appendChild(node);
+        return node;
+    }
+
+    /**
+     * Work done for one position
+     */
+    private interface Task {
+        void run(int index) throws Exception;
+    }
+
+    /**
+     * Run a task for every index, each thread taking every n-th index
+     * @param count number of indexes
+     * @param task the work for one index
+     */
+    private void forEachStriped(int count, Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int first = t;
+                workers.add(pool.submit(() -> {
+                    for (int i = first; i < count; i += threads) {
+                        task.run(i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * The shape of a board: how many pits each player has.
+ *
+ * Slots are numbered the same way as on the standard board for any size:
+ * player 1's pits from 0 and store after them, then player 2's pits and
+ * store. With p pits a side, player 1's store is at p, player 2's pits
+ * are at p+1 to 2p and their store at 2p+1. The standard board, 6 pits a
+ * side, is {@link #STANDARD}, laid out exactly as {@link MoveEngine}'s
+ * constants describe.
+ * @author Ashton Headley
+ */
+public final class BoardGeometry {
+
+    /**
+     * Fewest pits a side
+     */
+    public static final int MIN_PITS = 4;
+
+    /**
+     * Most pits a side
+     */
+    public static final int MAX_PITS = 8;
+
+    /**
+     * Most slots of any board
+     */
+    public static final int MAX_SLOTS = 2 * MAX_PITS + 2;
+
+    private static final BoardGeometry[] SIZES = new BoardGeometry[MAX_PITS + 1];
+
+    static {
+        for (int pits = MIN_PITS; pits <= MAX_PITS; ++pits) {
+            SIZES[pits] = new BoardGeometry(pits);
+        }
+    }
+
+    /**
+     * The board with 6 pits a side
+     */
+    public static final BoardGeometry STANDARD = SIZES[MoveEngine.PITS_PER_SIDE];
+
+    private final int pitsPerSide;
+    private final int slots;
+    private final int storeOne;
+    private final int storeTwo;
+
+    private BoardGeometry(int pitsPerSide) {
+        this.pitsPerSide = pitsPerSide;
+        this.slots = 2 * pitsPerSide + 2;
+        this.storeOne = pitsPerSide;
+        this.storeTwo = slots - 1;
+    }
+
+    /**
+     * Get the board with a number of pits a side
+     * @param pitsPerSide {@link #MIN_PITS} to {@link #MAX_PITS}
+     * @return the geometry
+     * @throws IllegalArgumentException if the number of pits is out of range
+     */
+    public static BoardGeometry of(int pitsPerSide) {
+        if (pitsPerSide < MIN_PITS || pitsPerSide > MAX_PITS) {
+            throw new IllegalArgumentException("pits per side must be " + MIN_PITS + " to " + MAX_PITS);
+        }
+        return SIZES[pitsPerSide];
+    }
+
+    /**
+     * Get the number of pits on each side
+     * @return pits per side
+     */
+    public int getPitsPerSide() {
+        return pitsPerSide;
+    }
+
+    /**
+     * Get the number of slots, pits and stores
+     * @return slots on the board
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * Get the number of slots a player sows into, everything but the opponent's store
+     * @return slots in one lap
+     */
+    public int getCycle() {
+        return slots - 1;
+    }
+
+    /**
+     * Get the index of player 1's store
+     * @return store index
+     */
+    public int getStoreOne() {
+        return storeOne;
+    }
+
+    /**
+     * Get the index of player 2's store
+     * @return store index
+     */
+    public int getStoreTwo() {
+        return storeTwo;
+    }
+
+    /**
+     * Get the index of a player's store
+     * @param player 1 or 2
+     * @return store index
+     */
+    public int storeOf(int player) {
+        return player == 1 ? storeOne : storeTwo;
+    }
+
+    /**
+     * Get the index of a player's first pit
+     * @param player 1 or 2
+     * @return index of the player's pit 0
+     */
+    public int offsetOf(int player) {
+        return player == 1 ? 0 : storeOne + 1;
+    }
+
+    /**
+     * Get the pit across the board from a pit
+     * @param pit pit index, not a store
+     * @return index of the opposite pit
+     */
+    public int opposite(int pit) {
+        return 2 * pitsPerSide - pit;
+    }
+
+    /**
+     * Whether a slot is a store
+     * @param slot slot index
+     * @return true for either player's store
+     */
+    public boolean isStore(int slot) {
+        return slot == storeOne || slot == storeTwo;
+    }
+
+    /**
+     * Whether this is the standard board, which every packed representation assumes
+     * @return true for 6 pits a side
+     */
+    public boolean isStandard() {
+        return this == STANDARD;
+    }
+
+    @Override
+    public String toString() {
+        return pitsPerSide + " pits";
+    }
+}
@@ -0,0 +1,105 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+/**
+ * Keeps the parts of the board that do not change during a game (pits,
+ * stores and labels) as pre-rendered images, one per player to move.
+ *
+ * {@link BoardStrategy#drawBoard} only depends on the board style and on
+ * which player is to move, so it is rendered once per player and then
+ * copied onto the screen on every repaint. The images are thrown away
+ * when the size, the background, the board style or the number of pits
+ * changes.
+ * @author Ashton Headley
+ */
+public class BoardLayerCache {
+
+    // indexed by player number, 1 or 2
+    private final BufferedImage[] layers = new BufferedImage[3];
+    private final Font[] fonts = new Font[3];
+
+    private Class<?> style;
+    private BoardGeometry geometry;
+    private int width, height;
+    private Color background;
+    private Font baseFont;
+
+    /**
+     * Draw the board from the cache, rendering it first if needed
+     * @param g2 destination graphics
+     * @param strategy the board style
+     * @param width width of the area to cover
+     * @param height height of the area to cover
+     * @param background color behind the board
+     * @param config screen configuration to create a compatible image for, or null
+     */
+    public void paint(Graphics2D g2, BoardStrategy strategy, int width, int height, Color background,
+                      GraphicsConfiguration config) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (strategy.getClass() != style || strategy.game.getGeometry() != geometry
+                || width != this.width || height != this.height
+                || !background.equals(this.background) || !g2.getFont().equals(baseFont)) {
+            invalidate();
+            style = strategy.getClass();
+            geometry = strategy.game.getGeometry();
+            this.width = width;
+            this.height = height;
+            this.background = background;
+            this.baseFont = g2.getFont();
+        }
+
+        int player = strategy.game.getCurrentPlayer();
+        if (layers[player] == null) {
+            render(g2, strategy, player, config);
+        }
+        g2.drawImage(layers[player], 0, 0, null);
+
+        // drawing the stores can change the font, later text expects that
+        g2.setFont(fonts[player]);
+        g2.setColor(Color.BLACK);
+    }
+
+    /**
+     * Render the board for one player into a new image
+     * @param g2 destination graphics, whose font and hints are copied
+     * @param strategy the board style
+     * @param player player to move
+     * @param config screen configuration, or null
+     */
+    private void render(Graphics2D g2, BoardStrategy strategy, int player, GraphicsConfiguration config) {
+        BufferedImage image = config != null
+                ? config.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(background);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHints(g2.getRenderingHints());
+            g.setFont(g2.getFont());
+            g.setColor(Color.black);
+            strategy.drawBoard(g);
+            fonts[player] = g.getFont();
+        } finally {
+            g.dispose();
+        }
+        layers[player] = image;
+    }
+
+    /**
+     * Throw away the rendered images
+     */
+    public void invalidate() {
+        for (int i = 0; i < layers.length; ++i) {
+            if (layers[i] != null) {
+                layers[i].flush();
+            }
+            layers[i] = null;
+            fonts[i] = null;
+        }
+    }
+}
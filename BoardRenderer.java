@@ -0,0 +1,108 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws positions into an offscreen image without a window, the same way
+ * {@link MancalaGame} draws them on screen.
+ *
+ * A renderer keeps its own copy of the board style and its own image, so
+ * it can be used with java.awt.headless=true. The image is reused for
+ * every position; callers that keep a frame must copy it or encode it
+ * before rendering the next one. A renderer is not thread-safe, so use one
+ * per thread.
+ * @author Ashton Headley
+ */
+public class BoardRenderer {
+
+    private final Model position;
+    private final BoardStrategy strategy;
+    private final BufferedImage image;
+    private final BoardLayerCache boardLayer = new BoardLayerCache();
+    private StoneLayout stoneLayout;
+
+    /**
+     * Initialize the class
+     * @param strategy the board style to draw, which is copied
+     */
+    public BoardRenderer(BoardStrategy strategy) {
+        position = new Model(strategy.game.getGeometry());
+        this.strategy = strategy.getCopy();
+        this.strategy.setGame(position);
+        Dimension size = strategy.getSize();
+        image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Draw a position
+     * @param model the game to draw, which is not changed
+     * @return the renderer's image, overwritten by the next call
+     */
+    public BufferedImage render(Model model) {
+        position.setPosition(model.getEngine().getPits(), model.getCurrentPlayer());
+        position.setWinningPlayer(model.getWinningPlayer());
+
+        Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setColor(Color.black);
+            boardLayer.paint(g2, strategy, image.getWidth(), image.getHeight(), strategy.backgroundColor, null);
+
+            int[] pits = position.getPitStones();
+            g2.setColor(Color.DARK_GRAY);
+            getStoneLayout(pits).drawPits(g2, pits);
+            stoneLayout.drawStores(g2, pits);
+
+            g2.setColor(Color.black);
+            drawPlayerInfo(g2, position);
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Get the image positions are drawn into
+     * @return the reused image
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Get the stone layout, computing it when a slot holds more stones than it has room for
+     * @param pits stones per slot
+     * @return the stone layout
+     */
+    private StoneLayout getStoneLayout(int[] pits) {
+        int total = 0;
+        for (int count : pits) {
+            total += count;
+        }
+        if (stoneLayout == null || !stoneLayout.fits(strategy, total)) {
+            stoneLayout = new StoneLayout(strategy, Math.max(total, 1));
+        }
+        return stoneLayout;
+    }
+
+    /**
+     * Draw whose turn it is, or who won
+     * @param g2 graphics
+     * @param model the game
+     */
+    static void drawPlayerInfo(Graphics2D g2, Model model) {
+        if ( model.getWinningPlayer() < 0 ) {
+            g2.drawString("Player " + model.getCurrentPlayer() + "'s turn", 20, 20);
+
+            // labeling the player on which side
+            g2.drawString("Player " + model.getCurrentPlayer() + " ->", 350, 350);
+            g2.drawString("<- "+"Player " + model.getOtherPlayer(), 350, 30);
+        } else {
+            if (model.getWinningPlayer() == 0) {
+                g2.drawString("Draw!", 20, 20);
+            } else {
+                g2.drawString("Player " + model.getWinningPlayer() + " wins!", 20, 20);
+            }
+        }
+    }
+}
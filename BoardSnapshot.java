@@ -0,0 +1,89 @@
+/**
+ * Immutable copy of a {@link Model}'s state at one moment, published by
+ * the model after every change so other threads can read it safely.
+ *
+ * The board is held as a {@link PackedBoard} in two longs, so a snapshot
+ * is one small object and every field of it belongs to the same moment.
+ * @author Ashton Headley
+ */
+public final class BoardSnapshot {
+
+    /**
+     * Player 2's side, as in {@link PackedBoard}, with the player to move
+     */
+    public final long hi;
+
+    /**
+     * Player 1's side, as in {@link PackedBoard}
+     */
+    public final long lo;
+
+    /**
+     * -1 while the game goes on, 0 for a tie, otherwise the winning player
+     */
+    public final int winner;
+
+    /**
+     * Whether the player to move has finished their move and may end their turn
+     */
+    public final boolean switchTurnAvailable;
+
+    /**
+     * Number of changes the model published before this one, starting at 0
+     */
+    public final long version;
+
+    /**
+     * Initialize the class
+     * @param hi player 2's side and the player to move
+     * @param lo player 1's side
+     * @param winner winner, or -1
+     * @param switchTurnAvailable whether the turn can be ended
+     * @param version publication number
+     */
+    public BoardSnapshot(long hi, long lo, int winner, boolean switchTurnAvailable, long version) {
+        this.hi = hi;
+        this.lo = lo;
+        this.winner = winner;
+        this.switchTurnAvailable = switchTurnAvailable;
+        this.version = version;
+    }
+
+    /**
+     * Get the stones in a slot
+     * @param slot absolute slot index: player 1's pits 0-5 and store 6, player 2's pits 7-12 and store 13
+     * @return stones in the slot
+     */
+    public int get(int slot) {
+        return PackedBoard.get(hi, lo, slot);
+    }
+
+    /**
+     * Get the player to move
+     * @return 1 or 2
+     */
+    public int getCurrentPlayer() {
+        return PackedBoard.sideToMove(hi);
+    }
+
+    /**
+     * Copy the board laid out like {@link Model#getPitStones()}: the player
+     * to move's pits and store first, then the opponent's
+     * @param view destination array of length 14
+     */
+    public void copyRelative(int[] view) {
+        int offset = MoveEngine.offsetOf(getCurrentPlayer());
+        for (int i = 0; i < MoveEngine.SLOTS; ++i) {
+            view[i] = get((i + offset) % MoveEngine.SLOTS);
+        }
+    }
+
+    /**
+     * Describe the snapshot
+     * @return version, winner and board
+     */
+    @Override
+    public String toString() {
+        return "#" + version + " winner=" + winner + " " + PackedBoard.toString(hi, lo);
+    }
+}
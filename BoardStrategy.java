@@ -101,7 +101,7 @@ public abstract class BoardStrategy {
      */
     public Dimension getSize() {
         int height = 3 * (outerPadding + pitHeight) + innerPadding +20;
-        int width = 6 * (pitWidth + innerPadding ) + 2 * (storeWidth + outerPadding);
+        int width = game.getGeometry().getPitsPerSide() * (pitWidth + innerPadding ) + 2 * (storeWidth + outerPadding);
         return new Dimension(width, height);
     }
 
@@ -113,7 +113,8 @@ public abstract class BoardStrategy {
      */
     protected void drawRow(Graphics g, int x, int y) {
         Graphics2D g2 = (Graphics2D) g;
-        for (int i = 0; i < 6; ++i ) {
+        int pits = game.getGeometry().getPitsPerSide();
+        for (int i = 0; i < pits; ++i ) {
             drawPit(g2, x, y);
             x += pitWidth + outerPadding;
         }
@@ -145,9 +146,10 @@ public abstract class BoardStrategy {
      */
     public void drawPitLabels(Graphics g) {
         Graphics2D g2 = (Graphics2D) g;
+        int pits = game.getGeometry().getPitsPerSide();
         if (game.getCurrentPlayer() == 1)
         {
-            for (int i = 0; i < 6; ++i ) {
+            for (int i = 0; i < pits; ++i ) {
                 g2.drawString("B" + i, getPitCenterX(i), storeWidth - innerPadding);
                 g2.drawString("A" + i, getPitCenterX(i), getPitY(i)+(pitHeight*2)+ innerPadding-10);
             }
@@ -155,7 +157,7 @@ public abstract class BoardStrategy {
 
         if (game.getCurrentPlayer() == 2)
         {
-            for (int i = 0; i < 6; ++i ) {
+            for (int i = 0; i < pits; ++i ) {
                 g2.drawString("A" + i, getPitCenterX(i), storeWidth - innerPadding);
                 g2.drawString("B" + i, getPitCenterX(i), getPitY(i)+(pitHeight*2) +innerPadding-10);
             }
@@ -168,18 +170,19 @@ public abstract class BoardStrategy {
      * @return the pit's X position
      */
     public int getPitX(int pit) {
+        BoardGeometry geometry = game.getGeometry();
         int x;
 
         // check if pit is a store
-        if ( pit == 6 || pit == 13 ) {
+        if ( geometry.isStore(pit) ) {
             x = outerPadding + storeWidth / 2;
 
             // subtract pit x from screen width
-            x = (pit == 6) ? getSize().width - x : x;
+            x = (pit == geometry.getStoreOne()) ? getSize().width - x : x;
         } else {
 
             // reverse the top row numbers
-            if (pit > 6) pit = -pit + 12;
+            if (pit > geometry.getStoreOne()) pit = geometry.opposite(pit);
 
             // begin with outside padding + mancala
             x = outerPadding + storeWidth;
@@ -202,7 +205,7 @@ public abstract class BoardStrategy {
     public int getPitY(int pit) {
 
         // check if a pit is a store or in the second row
-        if ( pit <= 6 || pit == 13 ) {
+        if ( pit <= game.getGeometry().getStoreOne() || pit == game.getGeometry().getStoreTwo() ) {
             return outerPadding * 2 + pitHeight;
         }
 
@@ -217,7 +220,7 @@ public abstract class BoardStrategy {
     public int getPitCenterX(int pit) {
         int x = getPitX(pit);
 
-        if (pit != 6 && pit != 13) {
+        if (!game.getGeometry().isStore(pit)) {
             x += pitWidth/2;
         }
 
@@ -232,7 +235,7 @@ public abstract class BoardStrategy {
     public int getPitCenterY(int pit) {
         int y = getPitY(pit);
 
-        if (pit != 6 && pit != 13) {
+        if (!game.getGeometry().isStore(pit)) {
             y += pitHeight/2;
         }
 
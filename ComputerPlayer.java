@@ -0,0 +1,109 @@
+/**
+ * A computer opponent that picks its moves with {@link AlphaBetaSearch},
+ * optionally on several threads through {@link ParallelSearch}
+ * @author Ashton Headley
+ */
+public class ComputerPlayer implements MancalaPlayer {
+
+    /**
+     * Default wall-clock time allowed per move in milliseconds
+     */
+    public static final long DEFAULT_BUDGET_MILLIS = 1000;
+
+    /**
+     * Default transposition table size in megabytes
+     */
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private final int player;
+    private final ParallelSearch search;
+    private SearchResult lastResult;
+    private OpeningBook book;
+    private final long[] state = new long[2];
+
+    /**
+     * Initialize the class
+     * @param player the side the computer plays, 1 or 2
+     * @param budgetMillis time allowed per move
+     */
+    public ComputerPlayer(int player, long budgetMillis) {
+        this(player, budgetMillis, DEFAULT_TABLE_MEGABYTES);
+    }
+
+    /**
+     * Initialize the class with a transposition table of a given size
+     * @param player the side the computer plays, 1 or 2
+     * @param budgetMillis time allowed per move
+     * @param tableMegabytes transposition table size, or 0 to search without one
+     */
+    public ComputerPlayer(int player, long budgetMillis, int tableMegabytes) {
+        this(player, budgetMillis, tableMegabytes, 1);
+    }
+
+    /**
+     * Initialize the class with a transposition table and several search threads
+     * @param player the side the computer plays, 1 or 2
+     * @param budgetMillis time allowed per move
+     * @param tableMegabytes transposition table size, or 0 to search without one
+     * @param threads number of search threads, e.g. the number of cores
+     */
+    public ComputerPlayer(int player, long budgetMillis, int tableMegabytes, int threads) {
+        this.player = player;
+        TranspositionTable table = tableMegabytes > 0 ? new TranspositionTable(tableMegabytes) : null;
+        this.search = new ParallelSearch(threads, budgetMillis, AlphaBetaSearch.MAX_DEPTH, table);
+    }
+
+    /**
+     * Choose a pit for the player to move
+     * @param model the game, which is not modified
+     * @return pit 0-5 relative to the player to move, or -1 if there is no legal move
+     */
+    @Override
+    public int chooseMove(Model model) {
+        if (book != null) {
+            long start = System.nanoTime();
+            PackedBoard.fromModel(model, state);
+            int pit = book.probe(state[0], state[1]);
+            if (pit >= 0) {
+                lastResult = new SearchResult(pit, book.probeScore(state[0], state[1]), book.getDepth(), 0,
+                        System.nanoTime() - start);
+                return pit;
+            }
+        }
+        lastResult = search.search(model);
+        GameMetrics.recordSearch(lastResult);
+        return lastResult.pit;
+    }
+
+    /**
+     * Play the early moves from an opening book instead of searching
+     * @param book the book, or null
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Look up positions with few stones left in an endgame table
+     * @param endgame a solved endgame table, or null
+     */
+    public void setEndgameTable(EndgameTable endgame) {
+        search.setEndgameTable(endgame);
+    }
+
+    /**
+     * Retrieve the side the computer plays
+     * @return 1 or 2
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Retrieve the statistics of the last search
+     * @return the last search outcome, or null before the first move
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+}
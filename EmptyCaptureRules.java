@@ -0,0 +1,14 @@
+/**
+ * Kalah where a last stone landing in an empty pit of the mover's own row
+ * is always captured, with whatever is across from it, even nothing.
+ * @author Ashton Headley
+ */
+public class EmptyCaptureRules extends KalahRules {
+
+    /**
+     * Initialize the class
+     */
+    public EmptyCaptureRules() {
+        super("Empty capture", true);
+    }
+}
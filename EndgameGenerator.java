@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds an {@link EndgameTable} file by solving every position with up
+ * to a given number of stones in the pits.
+ *
+ * Stone counts are solved from 0 upward. A move either drops stones into
+ * a store, which leads to a smaller stone count that is already solved,
+ * or keeps every stone on the mover's own side and pushes them toward the
+ * store. Positions with the same stone count therefore never repeat, and
+ * each count is solved with a memoized search in which all threads share
+ * the results. Each finished stone count is written to the memory-mapped
+ * file and recorded in the header, so an interrupted run resumes at the
+ * first unfinished count.
+ *
+ * Usage: java EndgameGenerator [maxStones] [file] [threads]
+ * @author Ashton Headley
+ */
+public class EndgameGenerator {
+
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+
+    private final EndgameTable table;
+    private byte[] level;
+    private int levelStones;
+
+    /**
+     * Initialize the class
+     * @param table table over the file being written
+     */
+    private EndgameGenerator(EndgameTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Generate a table from the command line
+     * @param args optional maximum stones, file name and thread count
+     */
+    public static void main(String[] args) throws Exception {
+        int maxStones = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        Path file = Paths.get(args.length > 1 ? args[1] : "endgame.db");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        generate(file, maxStones, threads);
+    }
+
+    /**
+     * Create or resume a table file
+     * @param file where to write the table
+     * @param maxStones largest stone count to solve
+     * @param threads number of worker threads
+     * @throws IOException if the file cannot be written
+     */
+    public static void generate(Path file, int maxStones, int threads) throws Exception {
+        long size = EndgameTable.fileSize(maxStones);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("a table for " + maxStones + " stones is larger than 2GB");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean resume = channel.size() == size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (!resume || buffer.getInt(0) != EndgameTable.MAGIC || buffer.getInt(4) != maxStones) {
+                buffer.putInt(0, EndgameTable.MAGIC);
+                buffer.putInt(4, maxStones);
+                buffer.putInt(8, 0);
+            }
+            int completed = buffer.getInt(8);
+
+            EndgameGenerator generator = new EndgameGenerator(new EndgameTable(maxStones, maxStones + 1, buffer));
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for (int stones = completed; stones <= maxStones; ++stones) {
+                    long start = System.nanoTime();
+                    generator.solveLevel(stones, threads, pool);
+
+                    buffer.put((int) generator.table.levelOffset(stones), generator.level);
+                    buffer.putInt(8, stones + 1);
+                    buffer.force();
+
+                    System.out.printf("stones %2d  %d positions  %.1f s%n", stones, generator.level.length,
+                            (System.nanoTime() - start) / 1e9);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Solve every position with a given number of stones in the pits
+     * @param stones the stone count
+     * @param threads number of workers
+     * @param pool executor running the workers
+     */
+    private void solveLevel(int stones, int threads, ExecutorService pool) throws Exception {
+        levelStones = stones;
+        level = new byte[(int) table.levelSize(stones)];
+        Arrays.fill(level, UNSOLVED);
+
+        Future<?>[] workers = new Future<?>[threads];
+        for (int t = 0; t < threads; ++t) {
+            final int first = t;
+            workers[t] = pool.submit(() -> {
+                int[] pits = new int[EndgameTable.PITS];
+                // interleave indices so every worker gets a mix of easy and hard positions
+                for (int index = first; index < level.length; index += threads) {
+                    if (level[index] == UNSOLVED) {
+                        table.unrank(index, stones, pits);
+                        level[index] = (byte) solve(pits, stones);
+                    }
+                }
+            });
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+    }
+
+    /**
+     * Find the value of a position
+     * @param pits mover's pits 0-5 then the opponent's pits 0-5
+     * @param stones their total
+     * @return how far ahead the mover finishes on these stones
+     */
+    private int solve(int[] pits, int stones) {
+        long own = 0, other = 0;
+        int ownSum = 0, otherSum = 0;
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            own |= (long) pits[i] << (i * PackedBoard.PIT_BITS);
+            other |= (long) pits[i + MoveEngine.PITS_PER_SIDE] << (i * PackedBoard.PIT_BITS);
+            ownSum += pits[i];
+            otherSum += pits[i + MoveEngine.PITS_PER_SIDE];
+        }
+
+        // the game is over, both players keep what is on their side
+        if (ownSum == 0 || otherSum == 0) {
+            return ownSum - otherSum;
+        }
+
+        // play as player 1 with empty stores so the stores hold what the move gained
+        long[] child = new long[2];
+        int[] next = new int[EndgameTable.PITS];
+        int best = Integer.MIN_VALUE;
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (pits[pit] == 0) {
+                continue;
+            }
+            PackedBoard.applyMove(other, own, pit, child);
+            int gain = PackedBoard.get(child[0], child[1], MoveEngine.STORE_ONE)
+                    - PackedBoard.get(child[0], child[1], MoveEngine.STORE_TWO);
+
+            int value;
+            if (PackedBoard.isGameOver(child[0], child[1])) {
+                value = gain;
+            } else if (PackedBoard.sideToMove(child[0]) == 1) {
+                value = gain + lookup(child[1], child[0], next);
+            } else {
+                value = gain - lookup(child[0], child[1], next);
+            }
+            best = Math.max(best, value);
+        }
+        return best;
+    }
+
+    /**
+     * Get the value of a position reached during the search
+     * @param mover packed side of the player to move
+     * @param opponent packed side of the other player
+     * @param pits scratch array
+     * @return the position's value for the player to move
+     */
+    private int lookup(long mover, long opponent, int[] pits) {
+        int stones = 0;
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            pits[i] = PackedBoard.get(0, mover, i);
+            pits[i + MoveEngine.PITS_PER_SIDE] = PackedBoard.get(0, opponent, i);
+            stones += pits[i] + pits[i + MoveEngine.PITS_PER_SIDE];
+        }
+        if (stones < levelStones) {
+            return table.get(pits, stones);
+        }
+
+        int index = (int) table.rank(pits, stones);
+        byte value = level[index];
+        if (value == UNSOLVED) {
+            value = (byte) solve(pits, stones);
+            level[index] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact values of every position with few stones left in the pits, read
+ * from a file written by {@link EndgameGenerator}.
+ *
+ * Stones already in a store never come back into play, so the outcome of
+ * an endgame only depends on the twelve pits and who is to move. A
+ * position is stored as one signed byte: the most the player to move can
+ * finish ahead by, counting only stones still in the pits. Positions are
+ * indexed from the mover's point of view (mover's pits 0-5, then the
+ * opponent's pits 0-5). Within a stone count, positions are ranked
+ * combinatorially, so lookup is a handful of additions.
+ *
+ * File layout: a 16 byte header (magic, maximum stones, completed stone
+ * counts, unused), then one block per stone count 0..max.
+ * @author Ashton Headley
+ */
+public class EndgameTable {
+
+    /**
+     * Identifies a table file
+     */
+    public static final int MAGIC = 0x4B454442;
+
+    /**
+     * Size of the file header in bytes
+     */
+    public static final int HEADER_BYTES = 16;
+
+    /**
+     * Number of pits in play
+     */
+    public static final int PITS = 2 * MoveEngine.PITS_PER_SIDE;
+
+    /**
+     * Returned by {@link #probe(long, long)} when a position is not in the table
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final int maxStones;
+    private final int completed;
+    private final ByteBuffer data;
+
+    // ways to split r stones over k pits, and partial sums of them used for ranking
+    private final long[][] count;
+    private final long[][][] below;
+    private final long[] levelOffset;
+
+    /**
+     * Open a table file
+     * @param file the table written by {@link EndgameGenerator}
+     * @return the table, memory-mapped read-only
+     * @throws IOException if the file cannot be read or is not a table
+     */
+    public static EndgameTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not an endgame table");
+            }
+            return new EndgameTable(buffer.getInt(4), buffer.getInt(8), buffer);
+        }
+    }
+
+    /**
+     * Initialize the class over a buffer holding the header and data
+     * @param maxStones largest stone count the file has room for
+     * @param completed number of stone counts, from 0, that are solved
+     * @param data the whole file
+     */
+    EndgameTable(int maxStones, int completed, ByteBuffer data) {
+        this.maxStones = maxStones;
+        this.completed = completed;
+        this.data = data;
+
+        count = new long[PITS + 1][maxStones + 1];
+        for (int k = 1; k <= PITS; ++k) {
+            for (int r = 0; r <= maxStones; ++r) {
+                count[k][r] = k == 1 ? 1 : binomial(r + k - 1, k - 1);
+            }
+        }
+        below = new long[PITS + 1][maxStones + 1][];
+        for (int k = 2; k <= PITS; ++k) {
+            for (int r = 0; r <= maxStones; ++r) {
+                below[k][r] = new long[r + 2];
+                for (int c = 0; c <= r; ++c) {
+                    below[k][r][c + 1] = below[k][r][c] + count[k - 1][r - c];
+                }
+            }
+        }
+        levelOffset = new long[maxStones + 2];
+        levelOffset[0] = HEADER_BYTES;
+        for (int n = 0; n <= maxStones; ++n) {
+            levelOffset[n + 1] = levelOffset[n] + count[PITS][n];
+        }
+    }
+
+    /**
+     * Get the file size needed for a table
+     * @param maxStones largest stone count
+     * @return size in bytes
+     */
+    public static long fileSize(int maxStones) {
+        return HEADER_BYTES + binomial(maxStones + PITS, PITS);
+    }
+
+    /**
+     * Compute a binomial coefficient
+     * @param n total
+     * @param k chosen
+     * @return n choose k
+     */
+    static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k; ++i) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of positions with a given number of stones in the pits
+     * @param stones stones in the pits
+     * @return positions in that block
+     */
+    public long levelSize(int stones) {
+        return count[PITS][stones];
+    }
+
+    /**
+     * Get the file offset of a stone count's block
+     * @param stones stones in the pits
+     * @return offset in bytes
+     */
+    long levelOffset(int stones) {
+        return levelOffset[stones];
+    }
+
+    /**
+     * Rank a distribution of stones among all with the same total
+     * @param pits twelve pit counts, mover's first
+     * @param stones their total
+     * @return index within the stone count's block
+     */
+    public long rank(int[] pits, int stones) {
+        long index = 0;
+        int remaining = stones;
+        for (int i = 0; i < PITS - 1; ++i) {
+            index += below[PITS - i][remaining][pits[i]];
+            remaining -= pits[i];
+        }
+        return index;
+    }
+
+    /**
+     * Turn an index back into a distribution of stones
+     * @param index index within the stone count's block
+     * @param stones the total
+     * @param pits receives twelve pit counts, mover's first
+     */
+    public void unrank(long index, int stones, int[] pits) {
+        int remaining = stones;
+        for (int i = 0; i < PITS - 1; ++i) {
+            long[] sums = below[PITS - i][remaining];
+            int c = 0;
+            while (sums[c + 1] <= index) {
+                ++c;
+            }
+            index -= sums[c];
+            pits[i] = c;
+            remaining -= c;
+        }
+        pits[PITS - 1] = remaining;
+    }
+
+    /**
+     * Look up the value of a position given as twelve pits
+     * @param pits mover's pits 0-5 then the opponent's pits 0-5
+     * @param stones their total
+     * @return how far ahead the mover finishes on the remaining stones
+     */
+    int get(int[] pits, int stones) {
+        return data.get((int) (levelOffset[stones] + rank(pits, stones)));
+    }
+
+    /**
+     * Look up a position
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return how many more of the remaining pit stones the player to move
+     * ends up with than the opponent under perfect play, or {@link #UNKNOWN}
+     * if the position has more stones than the table covers
+     */
+    public int probe(long hi, long lo) {
+        int stones = PackedBoard.stonesInPits(hi, lo);
+        if (stones >= completed) {
+            return UNKNOWN;
+        }
+
+        // rank from the mover's side without building an array
+        int mover = MoveEngine.offsetOf(PackedBoard.sideToMove(hi));
+        int other = MoveEngine.offsetOf(PackedBoard.sideToMove(hi) == 1 ? 2 : 1);
+        long index = 0;
+        int remaining = stones;
+        for (int i = 0; i < PITS - 1; ++i) {
+            int slot = i < MoveEngine.PITS_PER_SIDE ? mover + i : other + i - MoveEngine.PITS_PER_SIDE;
+            int c = PackedBoard.get(hi, lo, slot);
+            index += below[PITS - i][remaining][c];
+            remaining -= c;
+        }
+        return data.get((int) (levelOffset[stones] + index));
+    }
+
+    /**
+     * Get the largest stone count that can be probed
+     * @return stones in the pits the table fully covers
+     */
+    public int getMaxStones() {
+        return completed - 1;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Running statistics of how long frames take to paint
+ * @author Ashton Headley
+ */
+public class FrameStats {
+
+    private long frames;
+    private long totalNanos;
+    private long lastNanos;
+    private long maxNanos;
+
+    /**
+     * Add one frame
+     * @param nanos time the frame took to paint
+     */
+    public void record(long nanos) {
+        frames++;
+        totalNanos += nanos;
+        lastNanos = nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    /**
+     * Forget all recorded frames
+     */
+    public void reset() {
+        frames = totalNanos = lastNanos = maxNanos = 0;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Get the mean time per frame
+     * @return average nanoseconds per frame
+     */
+    public long getAverageNanos() {
+        return frames > 0 ? totalNanos / frames : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames  avg %.3f ms  max %.3f ms  last %.3f ms", frames,
+                getAverageNanos() / 1e6, maxNanos / 1e6, lastNanos / 1e6);
+    }
+}
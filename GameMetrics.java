@@ -0,0 +1,287 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * What the game does and how long it takes: moves applied, frames
+ * painted, moves undone and redone, turns confirmed and computer searches.
+ *
+ * Durations go into {@link LatencyHistogram}s and counts into
+ * {@link LongAdder}s, so recording never locks or allocates and any
+ * thread can record. Nothing is recorded until {@link #setEnabled} turns
+ * it on; until then each place that records costs one read of a flag and
+ * does not read the clock. Everything recorded can be printed as text or
+ * JSON, every so often with {@link #startReporting}, or watched over JMX
+ * once {@link #registerMBean} has been called.
+ * @author Ashton Headley
+ */
+public final class GameMetrics {
+
+    /**
+     * Name the metrics are registered under with JMX
+     */
+    public static final String OBJECT_NAME = "Mancala:type=GameMetrics";
+
+    private static volatile boolean enabled;
+
+    private static final LatencyHistogram MOVES = new LatencyHistogram();
+    private static final LatencyHistogram PAINTS = new LatencyHistogram();
+    private static final LatencyHistogram SEARCHES = new LatencyHistogram();
+    private static final LongAdder SEARCH_NODES = new LongAdder();
+    private static final LongAdder SEARCH_DEPTHS = new LongAdder();
+    private static final LongAdder UNDOS = new LongAdder();
+    private static final LongAdder REDOS = new LongAdder();
+    private static final LongAdder CONFIRMS = new LongAdder();
+
+    private GameMetrics() {
+    }
+
+    /**
+     * Whether metrics are being recorded. Check this before reading the
+     * clock for a duration.
+     * @return true if recording
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start or stop recording; what was recorded is kept
+     * @param on true to record
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Record the time one move took to apply
+     * @param nanos the duration
+     */
+    public static void recordMove(long nanos) {
+        if (enabled) {
+            MOVES.record(nanos);
+        }
+    }
+
+    /**
+     * Record the time one frame took to paint
+     * @param nanos the duration
+     */
+    public static void recordPaint(long nanos) {
+        if (enabled) {
+            PAINTS.record(nanos);
+        }
+    }
+
+    /**
+     * Count a move taken back
+     */
+    public static void countUndo() {
+        if (enabled) {
+            UNDOS.increment();
+        }
+    }
+
+    /**
+     * Count a move played again
+     */
+    public static void countRedo() {
+        if (enabled) {
+            REDOS.increment();
+        }
+    }
+
+    /**
+     * Count a confirmed turn
+     */
+    public static void countConfirm() {
+        if (enabled) {
+            CONFIRMS.increment();
+        }
+    }
+
+    /**
+     * Record a finished computer search
+     * @param result the search's outcome
+     */
+    public static void recordSearch(SearchResult result) {
+        if (enabled) {
+            SEARCHES.record(result.elapsedNanos);
+            SEARCH_NODES.add(result.nodes);
+            SEARCH_DEPTHS.add(result.depth);
+        }
+    }
+
+    /**
+     * Forget everything recorded
+     */
+    public static void reset() {
+        MOVES.reset();
+        PAINTS.reset();
+        SEARCHES.reset();
+        SEARCH_NODES.reset();
+        SEARCH_DEPTHS.reset();
+        UNDOS.reset();
+        REDOS.reset();
+        CONFIRMS.reset();
+    }
+
+    /**
+     * Describe everything recorded, one line per kind
+     * @return the text report
+     */
+    public static String toText() {
+        long searches = SEARCHES.getCount();
+        return String.format(Locale.ROOT, "moves    %s%npaint    %s%nsearch   %s nodes=%d avgDepth=%.1f%n"
+                + "undos=%d redos=%d confirms=%d%n", MOVES, PAINTS, SEARCHES, SEARCH_NODES.sum(),
+                searches > 0 ? (double) SEARCH_DEPTHS.sum() / searches : 0.0, UNDOS.sum(), REDOS.sum(),
+                CONFIRMS.sum());
+    }
+
+    /**
+     * Describe everything recorded as one JSON object, durations in microseconds
+     * @return the JSON report
+     */
+    public static String toJson() {
+        return String.format(Locale.ROOT, "{\"enabled\":%b,\"move\":%s,\"paint\":%s,\"search\":%s,"
+                + "\"searchNodes\":%d,\"searchDepths\":%d,\"undos\":%d,\"redos\":%d,\"confirms\":%d}",
+                enabled, toJson(MOVES), toJson(PAINTS), toJson(SEARCHES), SEARCH_NODES.sum(),
+                SEARCH_DEPTHS.sum(), UNDOS.sum(), REDOS.sum(), CONFIRMS.sum());
+    }
+
+    private static String toJson(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "{\"count\":%d,\"p50\":%.1f,\"p90\":%.1f,\"p99\":%.1f,\"p999\":%.1f,\"max\":%.1f}",
+                histogram.getCount(), histogram.getPercentile(50) / 1e3, histogram.getPercentile(90) / 1e3,
+                histogram.getPercentile(99) / 1e3, histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3);
+    }
+
+    /**
+     * Print a report every so often on a background thread
+     * @param periodMillis time between reports
+     * @param json true for JSON, one object per line, false for text
+     * @param out where to print
+     * @return the reporting thread's executor, shut it down to stop
+     */
+    public static ScheduledExecutorService startReporting(long periodMillis, boolean json, PrintStream out) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> out.print(json ? toJson() + System.lineSeparator() : toText()),
+                periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+
+    /**
+     * Make the metrics visible over JMX as {@link #OBJECT_NAME}, if they are not already
+     * @throws JMException if the platform MBean server refuses them
+     */
+    public static synchronized void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new StandardMBean(new Bean(), GameMetricsMBean.class), name);
+        }
+    }
+
+    /**
+     * The metrics as JMX sees them
+     */
+    private static final class Bean implements GameMetricsMBean {
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            enabled = on;
+        }
+
+        @Override
+        public long getMoves() {
+            return MOVES.getCount();
+        }
+
+        @Override
+        public double getMoveP50Micros() {
+            return MOVES.getPercentile(50) / 1e3;
+        }
+
+        @Override
+        public double getMoveP99Micros() {
+            return MOVES.getPercentile(99) / 1e3;
+        }
+
+        @Override
+        public long getFrames() {
+            return PAINTS.getCount();
+        }
+
+        @Override
+        public double getPaintP50Micros() {
+            return PAINTS.getPercentile(50) / 1e3;
+        }
+
+        @Override
+        public double getPaintP99Micros() {
+            return PAINTS.getPercentile(99) / 1e3;
+        }
+
+        @Override
+        public long getUndos() {
+            return UNDOS.sum();
+        }
+
+        @Override
+        public long getRedos() {
+            return REDOS.sum();
+        }
+
+        @Override
+        public long getConfirms() {
+            return CONFIRMS.sum();
+        }
+
+        @Override
+        public long getSearches() {
+            return SEARCHES.getCount();
+        }
+
+        @Override
+        public long getSearchNodes() {
+            return SEARCH_NODES.sum();
+        }
+
+        @Override
+        public double getSearchP99Micros() {
+            return SEARCHES.getPercentile(99) / 1e3;
+        }
+
+        @Override
+        public void reset() {
+            GameMetrics.reset();
+        }
+
+        @Override
+        public String dumpText() {
+            return toText();
+        }
+
+        @Override
+        public String dumpJson() {
+            return toJson();
+        }
+    }
+}
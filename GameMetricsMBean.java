@@ -0,0 +1,108 @@
+/**
+ * The management interface of {@link GameMetrics}, as seen in JConsole or
+ * any other JMX client. Durations are in microseconds.
+ * @author Ashton Headley
+ */
+public interface GameMetricsMBean {
+
+    /**
+     * Whether the game is recording
+     * @return true if metrics are being recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * Start or stop recording
+     * @param enabled true to record
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Get the number of moves applied by {@link Model#doPlayerTurn}
+     * @return moves timed
+     */
+    long getMoves();
+
+    /**
+     * Get the median time to apply a move
+     * @return microseconds
+     */
+    double getMoveP50Micros();
+
+    /**
+     * Get the 99th percentile time to apply a move
+     * @return microseconds
+     */
+    double getMoveP99Micros();
+
+    /**
+     * Get the number of frames painted
+     * @return frames timed
+     */
+    long getFrames();
+
+    /**
+     * Get the median time to paint a frame
+     * @return microseconds
+     */
+    double getPaintP50Micros();
+
+    /**
+     * Get the 99th percentile time to paint a frame
+     * @return microseconds
+     */
+    double getPaintP99Micros();
+
+    /**
+     * Get the number of moves taken back
+     * @return undos
+     */
+    long getUndos();
+
+    /**
+     * Get the number of moves played again
+     * @return redos
+     */
+    long getRedos();
+
+    /**
+     * Get the number of turns confirmed
+     * @return confirmations that switched the player
+     */
+    long getConfirms();
+
+    /**
+     * Get the number of computer searches
+     * @return searches
+     */
+    long getSearches();
+
+    /**
+     * Get the positions visited by all computer searches
+     * @return nodes
+     */
+    long getSearchNodes();
+
+    /**
+     * Get the 99th percentile time of a computer search
+     * @return microseconds
+     */
+    double getSearchP99Micros();
+
+    /**
+     * Forget everything recorded
+     */
+    void reset();
+
+    /**
+     * Describe everything recorded as lines of text
+     * @return the text report
+     */
+    String dumpText();
+
+    /**
+     * Describe everything recorded as a JSON object
+     * @return the JSON report
+     */
+    String dumpJson();
+}
@@ -0,0 +1,132 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Checks and times the game record format: writes random games, reads
+ * them back comparing every move and final position with the games as
+ * they were played, then times scanning and replaying the file.
+ *
+ * Usage: java GameRecordBenchmark [games] [file]
+ * @author Ashton Headley
+ */
+public class GameRecordBenchmark {
+
+    private static final long SEED = 0x4B47524CL;
+
+    /**
+     * Run the round trip and the timings
+     * @param args optional number of games and file name
+     */
+    public static void main(String[] args) throws Exception {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+        Path file = Paths.get(args.length > 1 ? args[1] : "games.rec");
+
+        int[] moves = new int[1024];
+        long[] board = new long[2];
+        long totalMoves = 0;
+
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(SEED);
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            for (long g = 0; g < games; ++g) {
+                int stones = 3 + (int) (g & 3);
+                int count = play(random, stones, moves, board);
+                writer.writeGame(stones, (int) (g >> 2) & 1, moves, count);
+                totalMoves += count;
+            }
+        }
+        double writeSeconds = (System.nanoTime() - start) / 1e9;
+        long bytes = Files.size(file);
+        System.out.printf("write:   %d games, %d moves, %.2f bytes/game, %.1f MB in %.2f s (includes playing the games)%n",
+                games, totalMoves, (double) bytes / games, bytes / 1e6, writeSeconds);
+
+        // read back and compare with the same games played again
+        random = new SplittableRandom(SEED);
+        long[] replayed = new long[2];
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            check(reader.getGameCount() == games, "game count " + reader.getGameCount());
+            long g = 0;
+            while (reader.next()) {
+                int stones = 3 + (int) (g & 3);
+                int count = play(random, stones, moves, board);
+                check(reader.getStones() == stones && reader.getStyle() == ((int) (g >> 2) & 1), "setup of game " + g);
+                check(reader.getMoveCount() == count, "move count of game " + g);
+                for (int i = 0; i < count; ++i) {
+                    check(reader.getMove(i) == moves[i], "move " + i + " of game " + g);
+                }
+                check(reader.replay(replayed) == count && replayed[0] == board[0] && replayed[1] == board[1],
+                        "final position of game " + g);
+                ++g;
+            }
+            check(g == games, "read " + g + " games");
+        }
+        System.out.println("round trip: all games match");
+
+        for (int pass = 0; pass < 3; ++pass) {
+            // scan: visit every game and every move without replaying
+            start = System.nanoTime();
+            long checksum = 0;
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                while (reader.next()) {
+                    int count = reader.getMoveCount();
+                    for (int i = 0; i < count; ++i) {
+                        checksum += reader.getMove(i);
+                    }
+                }
+            }
+            double scanSeconds = (System.nanoTime() - start) / 1e9;
+
+            // statistics: replay every game to find the winner
+            start = System.nanoTime();
+            long[] wins = new long[3];
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                while (reader.next()) {
+                    reader.replay(replayed);
+                    wins[PackedBoard.winner(replayed[0], replayed[1])]++;
+                }
+            }
+            double replaySeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("scan:    %.1f M games/s, %.0f MB/s (checksum %d)%n",
+                    games / scanSeconds / 1e6, bytes / scanSeconds / 1e6, checksum);
+            System.out.printf("replay:  %.1f M games/s, %.1f M moves/s  p1 %d  p2 %d  draw %d%n",
+                    games / replaySeconds / 1e6, totalMoves / replaySeconds / 1e6, wins[1], wins[2], wins[0]);
+        }
+        Files.delete(file);
+    }
+
+    /**
+     * Play a game of random legal moves
+     * @param random move source
+     * @param stones stones per pit
+     * @param moves receives the moves
+     * @param board receives the final position
+     * @return number of moves
+     */
+    private static int play(SplittableRandom random, int stones, int[] moves, long[] board) {
+        PackedBoard.initial(stones, board);
+        int count = 0;
+        while (!PackedBoard.isGameOver(board[0], board[1])) {
+            int pit;
+            do {
+                pit = random.nextInt(MoveEngine.PITS_PER_SIDE);
+            } while (!PackedBoard.isLegal(board[0], board[1], pit));
+            moves[count++] = pit;
+            PackedBoard.applyMove(board[0], board[1], pit, board);
+        }
+        return count;
+    }
+
+    /**
+     * Stop with a message when a check fails
+     * @param condition what must hold
+     * @param message what was being checked
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("round trip failed: " + message);
+        }
+    }
+}
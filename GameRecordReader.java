@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file written by {@link GameRecordWriter} one game at a time.
+ *
+ * The file is memory-mapped in large windows, so files bigger than 2 GB
+ * can be scanned, and no objects are created per game: the reader itself
+ * describes the current game, and {@link #replay} plays it out on a
+ * {@link PackedBoard} instead of a {@link Model}.
+ *
+ * Typical use:
+ * <pre>
+ * try (GameRecordReader reader = GameRecordReader.open(file)) {
+ *     while (reader.next()) {
+ *         ... reader.getMoveCount(), reader.getMove(i), reader.replay(board) ...
+ *     }
+ * }
+ * </pre>
+ * @author Ashton Headley
+ */
+public class GameRecordReader implements AutoCloseable {
+
+    /**
+     * Most bytes a game takes before its moves: the setup byte and a five byte count
+     */
+    public static final int MAX_PREFIX_BYTES = 6;
+
+    private static final long WINDOW_BYTES = 1L << 28;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long games;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    // the current game
+    private boolean onGame;
+    private long position;
+    private int setup;
+    private int moveCount;
+    private int movesOffset;
+
+    /**
+     * Initialize the class
+     * @param channel the open file
+     * @param games game count from the header
+     */
+    private GameRecordReader(FileChannel channel, long games) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.games = games;
+        this.position = GameRecordWriter.HEADER_BYTES;
+        map(0);
+    }
+
+    /**
+     * Open a game record file
+     * @param file a file written by {@link GameRecordWriter}
+     * @return a reader positioned before the first game
+     * @throws IOException if the file cannot be read or is not a game record file
+     */
+    public static GameRecordReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), GameRecordWriter.HEADER_BYTES));
+            if (header.limit() < GameRecordWriter.HEADER_BYTES || header.getInt(0) != GameRecordWriter.MAGIC) {
+                throw new IOException(file + " is not a game record file");
+            }
+            if (header.getInt(4) != GameRecordWriter.VERSION) {
+                throw new IOException(file + " has unsupported version " + header.getInt(4));
+            }
+            return new GameRecordReader(channel, header.getLong(8));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map the part of the file starting at a position
+     * @param start file position
+     */
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+    }
+
+    /**
+     * Move to the next game
+     * @return false when there are no more games
+     * @throws IOException if the file cannot be read
+     */
+    public boolean next() throws IOException {
+        if (onGame) {
+            position = windowStart + movesOffset + ((moveCount + 1) >> 1);
+        }
+        onGame = position < size;
+        if (!onGame) {
+            return false;
+        }
+        if (position + MAX_PREFIX_BYTES > windowStart + window.limit() && windowStart + window.limit() < size) {
+            map(position);
+        }
+
+        int offset = (int) (position - windowStart);
+        setup = window.get(offset++) & 0xFF;
+        int count = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = window.get(offset++);
+            count |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        moveCount = count;
+
+        // remap so that the whole game is inside the window
+        int bytes = (count + 1) >> 1;
+        if (offset + bytes > window.limit()) {
+            if (windowStart + offset + bytes > size) {
+                throw new IOException("game record file is truncated at byte " + position);
+            }
+            long prefix = windowStart + offset - position;
+            map(position);
+            offset = (int) prefix;
+        }
+        movesOffset = offset;
+        return true;
+    }
+
+    /**
+     * Get the stones per pit the current game started with
+     * @return stones per pit
+     */
+    public int getStones() {
+        return setup & 0xF;
+    }
+
+    /**
+     * Get the board style the current game was played on
+     * @return {@link GameRecordWriter#STYLE_DEFAULT} or another style number
+     */
+    public int getStyle() {
+        return (setup >> 4) & 3;
+    }
+
+    /**
+     * Get the number of moves in the current game
+     * @return move count
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get a move of the current game
+     * @param i move number, from 0
+     * @return pit 0-5 relative to the player who made the move
+     */
+    public int getMove(int i) {
+        return (window.get(movesOffset + (i >> 1)) >> ((i & 1) << 2)) & 0xF;
+    }
+
+    /**
+     * Play the current game from its start
+     * @param board receives the final position as {hi, lo}
+     * @return number of moves played before the game ended or the moves ran out
+     */
+    public int replay(long[] board) {
+        PackedBoard.initial(getStones(), board);
+        long hi = board[0], lo = board[1];
+        int played = 0;
+        for (int i = 0; i < moveCount; ++i) {
+            if (PackedBoard.isGameOver(hi, lo)) {
+                break;
+            }
+            int pair = window.get(movesOffset + (i >> 1));
+            PackedBoard.applyMove(hi, lo, (pair >> ((i & 1) << 2)) & 0xF, board);
+            hi = board[0];
+            lo = board[1];
+            ++played;
+        }
+        return played;
+    }
+
+    /**
+     * Get the number of games in the file
+     * @return game count from the header
+     */
+    public long getGameCount() {
+        return games;
+    }
+
+    /**
+     * Close the file
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Appends finished games to a game record file, read back by
+ * {@link GameRecordReader}.
+ *
+ * A game is stored as its starting setup and the pits that were chosen,
+ * half a byte per move; everything else follows from replaying the moves.
+ * Games are buffered and written in large blocks, and the game count in
+ * the header is filled in when the writer is closed.
+ *
+ * File layout: a 16 byte header (magic, format version, game count as a
+ * long), then the games one after another. A game is one setup byte
+ * (stones per pit in bits 0-3, board style in bits 4-5), its move count
+ * as an unsigned LEB128 varint, then the moves two to a byte, the first
+ * in the low half. A move is the pit 0-5 relative to the player making it.
+ * @author Ashton Headley
+ */
+public class GameRecordWriter implements AutoCloseable {
+
+    /**
+     * Identifies a game record file
+     */
+    public static final int MAGIC = 0x4B47524C;
+
+    /**
+     * Version of the layout described above
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the file header in bytes
+     */
+    public static final int HEADER_BYTES = 16;
+
+    /**
+     * Board style of games played on a {@link DefaultBoard}
+     */
+    public static final int STYLE_DEFAULT = 0;
+
+    /**
+     * Board style of games played on a {@link BeachBoard}
+     */
+    public static final int STYLE_BEACH = 1;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long games;
+
+    // moves of the game being recorded
+    private int stones, style;
+    private byte[] moves = new byte[64];
+    private int moveCount = -1;
+
+    /**
+     * Create a new file, replacing any file of the same name
+     * @param file the file to write
+     * @throws IOException if the file cannot be created
+     */
+    public GameRecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+    }
+
+    /**
+     * Get the style number of a board
+     * @param strategy the board style
+     * @return {@link #STYLE_BEACH} for a beach board, otherwise {@link #STYLE_DEFAULT}
+     */
+    public static int styleOf(BoardStrategy strategy) {
+        return strategy instanceof BeachBoard ? STYLE_BEACH : STYLE_DEFAULT;
+    }
+
+    /**
+     * Start recording a game
+     * @param stones stones per pit at the start, 1-15
+     * @param style board style, 0-3
+     */
+    public void startGame(int stones, int style) {
+        if (stones < 1 || stones > 15 || style < 0 || style > 3) {
+            throw new IllegalArgumentException("stones must be 1-15 and style 0-3");
+        }
+        this.stones = stones;
+        this.style = style;
+        moveCount = 0;
+    }
+
+    /**
+     * Record the next move of the game
+     * @param pit pit 0-5 relative to the player making the move
+     */
+    public void addMove(int pit) {
+        if (moveCount < 0) {
+            throw new IllegalStateException("no game started");
+        }
+        if (pit < 0 || pit > 15) {
+            throw new IllegalArgumentException("pit must fit in half a byte: " + pit);
+        }
+        int index = moveCount >> 1;
+        if (index == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        if ((moveCount & 1) == 0) {
+            moves[index] = (byte) pit;
+        } else {
+            moves[index] |= (byte) (pit << 4);
+        }
+        ++moveCount;
+    }
+
+    /**
+     * Write the game being recorded
+     * @throws IOException if writing fails
+     */
+    public void finishGame() throws IOException {
+        if (moveCount < 0) {
+            throw new IllegalStateException("no game started");
+        }
+        int bytes = (moveCount + 1) >> 1;
+        if (bytes + GameRecordReader.MAX_PREFIX_BYTES > BUFFER_BYTES) {
+            throw new IllegalStateException("game too long to record: " + moveCount + " moves");
+        }
+        if (buffer.remaining() < bytes + GameRecordReader.MAX_PREFIX_BYTES) {
+            flush();
+        }
+        writeGame(buffer, bytes);
+        moveCount = -1;
+        ++games;
+    }
+
+    /**
+     * Record a whole game at once
+     * @param stones stones per pit at the start
+     * @param style board style
+     * @param pits the moves, each a pit relative to the player making it
+     * @param count number of moves
+     * @throws IOException if writing fails
+     */
+    public void writeGame(int stones, int style, int[] pits, int count) throws IOException {
+        startGame(stones, style);
+        for (int i = 0; i < count; ++i) {
+            addMove(pits[i]);
+        }
+        finishGame();
+    }
+
+    /**
+     * Lay out the game being recorded
+     * @param out destination
+     * @param bytes bytes of moves
+     */
+    private void writeGame(ByteBuffer out, int bytes) {
+        out.put((byte) (stones | style << 4));
+        int count = moveCount;
+        while (count >= 0x80) {
+            out.put((byte) (count | 0x80));
+            count >>>= 7;
+        }
+        out.put((byte) count);
+        out.put(moves, 0, bytes);
+    }
+
+    /**
+     * Get the number of games written so far
+     * @return game count
+     */
+    public long getGameCount() {
+        return games;
+    }
+
+    /**
+     * Write out the buffered games
+     * @throws IOException if writing fails
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write the remaining games and the game count, and close the file
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer count = ByteBuffer.allocate(8);
+            count.putLong(games).flip();
+            channel.write(count, 8);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts many independent matches in one JVM and plays the moves sent to
+ * them through an in-process API.
+ *
+ * Every match owns a {@link Model} and a {@link Mailbox}. Sending a move
+ * only appends it to the match's mailbox; the first message to arrive at
+ * an idle match schedules it on a shared pool, which then plays the
+ * queued moves in order. A match is therefore only ever played on by one
+ * thread at a time, without locks, and idle matches cost no thread at
+ * all, so tens of thousands can be open at once on a few threads.
+ *
+ * The server counts matches and moves, and keeps a histogram of the time
+ * from sending a move to its reply.
+ * @author Ashton Headley
+ */
+public class GameServer implements AutoCloseable {
+
+    /**
+     * Most moves a match plays before giving its thread to other matches
+     */
+    private static final int BATCH = 64;
+
+    private final ThreadPoolExecutor pool;
+    private final ConcurrentHashMap<Long, Match> matches = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Initialize the class with one worker thread per processor
+     */
+    public GameServer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initialize the class
+     * @param threads number of worker threads playing the matches
+     */
+    public GameServer(int threads) {
+        // one shared first in, first out queue, so a busy match cannot starve the others;
+        // a ForkJoinPool keeps rescheduled matches on its worker's own queue and starves new ones
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedTransferQueue<>(), r -> {
+            Thread thread = new Thread(r, "match-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open a new match
+     * @param stones stones per pit
+     * @return the match id
+     */
+    public long createMatch(int stones) {
+        long id = nextId.incrementAndGet();
+        Model model = new Model();
+        model.setInitialStonesPerPit(stones);
+        model.enableSnapshots();
+        matches.put(id, new Match(id, model));
+        created.increment();
+        return id;
+    }
+
+    /**
+     * Send a move to a match. The reply is completed on a server thread
+     * once the match has played it.
+     * @param matchId the match
+     * @param player the player making the move, 1 or 2
+     * @param pit pit 0-5 relative to the player
+     * @return the reply
+     */
+    public CompletableFuture<MoveResult> move(long matchId, int player, int pit) {
+        CompletableFuture<MoveResult> reply = new CompletableFuture<>();
+        Match match = matches.get(matchId);
+        if (match == null) {
+            reply.complete(new MoveResult(MoveResult.NO_MATCH, 0, 0, 0, -1));
+        } else {
+            match.post(new Request(player, pit, reply));
+        }
+        return reply;
+    }
+
+    /**
+     * Look at a match from any thread without waiting for its moves
+     * @param matchId the match
+     * @return the match's state after its last move, or null if the match is over or does not exist
+     */
+    public BoardSnapshot watch(long matchId) {
+        Match match = matches.get(matchId);
+        return match == null ? null : match.model.getSnapshot();
+    }
+
+    /**
+     * Get the number of worker threads
+     * @return threads playing the matches
+     */
+    public int getThreads() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Get the number of matches still being played
+     * @return open matches
+     */
+    public int getOpenMatches() {
+        return matches.size();
+    }
+
+    /**
+     * Get the number of matches opened
+     * @return matches created
+     */
+    public long getMatchesCreated() {
+        return created.sum();
+    }
+
+    /**
+     * Get the number of matches played to the end
+     * @return finished matches
+     */
+    public long getMatchesFinished() {
+        return finished.sum();
+    }
+
+    /**
+     * Get the number of moves played
+     * @return moves
+     */
+    public long getMovesPlayed() {
+        return moves.sum();
+    }
+
+    /**
+     * Get the time from sending a move to its reply
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Stop the worker threads, waiting briefly for queued moves.
+     * If the wait is interrupted, the thread's interrupt flag is set again.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A move waiting in a mailbox
+     */
+    private static final class Request {
+        final int player, pit;
+        final CompletableFuture<MoveResult> reply;
+        final long sentNanos = System.nanoTime();
+
+        Request(int player, int pit, CompletableFuture<MoveResult> reply) {
+            this.player = player;
+            this.pit = pit;
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * One game and its queued moves
+     */
+    private final class Match implements Runnable {
+        private final long id;
+        private final Model model;
+        private final Mailbox<Request> mailbox = new Mailbox<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final long[] board = new long[2];
+
+        Match(long id, Model model) {
+            this.id = id;
+            this.model = model;
+        }
+
+        /**
+         * Queue a move, scheduling the match if it was idle
+         * @param request the move
+         */
+        void post(Request request) {
+            mailbox.offer(request);
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        /**
+         * Play the queued moves. A move that throws completes its reply
+         * exceptionally and the later moves are still played; the match is
+         * always left free to be scheduled again.
+         */
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < BATCH; ++i) {
+                    Request request = mailbox.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    MoveResult result;
+                    try {
+                        result = play(request);
+                    } catch (RuntimeException e) {
+                        request.reply.completeExceptionally(e);
+                        continue;
+                    } catch (Error e) {
+                        request.reply.completeExceptionally(e);
+                        throw e;
+                    }
+                    latency.record(System.nanoTime() - request.sentNanos);
+                    request.reply.complete(result);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            // a move may have arrived after the last poll but before the flag was cleared
+            if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        /**
+         * Play one move and describe the board afterwards
+         * @param request the move
+         * @return the reply
+         */
+        private MoveResult play(Request request) {
+            int status;
+            if (model.getWinningPlayer() >= 0) {
+                status = MoveResult.GAME_OVER;
+            } else if (request.player != model.getCurrentPlayer()) {
+                status = MoveResult.NOT_YOUR_TURN;
+            } else if (request.pit < 0 || request.pit >= MoveEngine.PITS_PER_SIDE
+                    || model.getPitStones()[request.pit] == 0) {
+                status = MoveResult.ILLEGAL;
+            } else {
+                model.doPlayerTurn(request.pit);
+                model.confirmTurn();
+                moves.increment();
+                status = MoveResult.OK;
+                if (model.getWinningPlayer() >= 0) {
+                    matches.remove(id);
+                    finished.increment();
+                }
+            }
+            PackedBoard.fromModel(model, board);
+            return new MoveResult(status, board[0], board[1], model.getCurrentPlayer(), model.getWinningPlayer());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for {@link GameServer}: keeps a number of matches open at
+ * all times, each driven by a client that answers every reply with a
+ * random legal move and opens a new match when its game ends.
+ *
+ * Prints matches and moves per second and the server's move latency once
+ * a second, and a summary at the end.
+ *
+ * Usage: java GameServerLoadTest [concurrent matches] [seconds] [threads]
+ * @author Ashton Headley
+ */
+public class GameServerLoadTest {
+
+    private final GameServer server;
+    private final int stones = 4;
+    private final LongAdder games = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean running = true;
+    private CountDownLatch stopped;
+
+    /**
+     * Initialize the class
+     * @param server the server to load
+     */
+    public GameServerLoadTest(GameServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Run the load test from the command line
+     * @param args optional number of concurrent matches, duration in seconds and server threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        try (GameServer server = new GameServer(threads)) {
+            new GameServerLoadTest(server).run(clients, seconds);
+        }
+    }
+
+    /**
+     * Keep matches going for a while and print the statistics
+     * @param clients number of matches open at once
+     * @param seconds how long to run
+     */
+    public void run(int clients, int seconds) throws InterruptedException {
+        stopped = new CountDownLatch(clients);
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; ++i) {
+            new Client().startMatch();
+        }
+        System.out.printf("%d matches open on %d server threads%n", server.getOpenMatches(), server.getThreads());
+
+        long lastGames = 0, lastMoves = 0;
+        for (int s = 1; s <= seconds; ++s) {
+            Thread.sleep(1000);
+            long g = games.sum(), m = server.getMovesPlayed();
+            System.out.printf("%3d s  %7d matches/s  %9d moves/s  open %d  latency %s%n",
+                    s, g - lastGames, m - lastMoves, server.getOpenMatches(), server.getLatency());
+            lastGames = g;
+            lastMoves = m;
+            if (s == 1) {
+                // leave the warm-up out of the latency figures
+                server.getLatency().reset();
+            }
+        }
+        running = false;
+        stopped.await();
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("total: %d matches, %d moves in %.1f s: %.0f matches/s, %.0f moves/s, %d errors%n",
+                games.sum(), server.getMovesPlayed(), elapsed, games.sum() / elapsed,
+                server.getMovesPlayed() / elapsed, errors.sum());
+        System.out.println("latency " + server.getLatency());
+    }
+
+    /**
+     * Plays both sides of one match at a time
+     */
+    private final class Client {
+        private long match;
+
+        /**
+         * Open a match and make the first move
+         */
+        void startMatch() {
+            match = server.createMatch(stones);
+            long[] board = new long[2];
+            PackedBoard.initial(stones, board);
+            send(board[0], board[1]);
+        }
+
+        /**
+         * Send a random legal move for the player to move
+         * @param hi player 2's side
+         * @param lo player 1's side
+         */
+        void send(long hi, long lo) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pit;
+            do {
+                pit = random.nextInt(MoveEngine.PITS_PER_SIDE);
+            } while (!PackedBoard.isLegal(hi, lo, pit));
+            server.move(match, PackedBoard.sideToMove(hi), pit).thenAccept(this::reply);
+        }
+
+        /**
+         * Continue the game, or start the next one
+         * @param result the server's reply
+         */
+        void reply(MoveResult result) {
+            if (result.status != MoveResult.OK) {
+                errors.increment();
+            }
+            if (result.winner >= 0 || result.status != MoveResult.OK) {
+                games.increment();
+                if (running) {
+                    startMatch();
+                } else {
+                    stopped.countDown();
+                }
+            } else {
+                send(result.hi, result.lo);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Plays the move that gains the most stones in its own store right away,
+ * preferring moves that earn an extra turn
+ * @author Ashton Headley
+ */
+public class GreedyPlayer implements MancalaPlayer {
+
+    private final long[] state = new long[2];
+    private final long[] child = new long[2];
+
+    @Override
+    public int chooseMove(Model model) {
+        PackedBoard.fromModel(model, state);
+        int player = PackedBoard.sideToMove(state[0]);
+        int store = MoveEngine.storeOf(player);
+        int before = PackedBoard.get(state[0], state[1], store);
+
+        int bestPit = -1, bestScore = Integer.MIN_VALUE;
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (!PackedBoard.isLegal(state[0], state[1], pit)) {
+                continue;
+            }
+            PackedBoard.applyMove(state[0], state[1], pit, child);
+            int score = (PackedBoard.get(child[0], child[1], store) - before) * 2;
+            if (PackedBoard.sideToMove(child[0]) == player) {
+                score++;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestPit = pit;
+            }
+        }
+        return bestPit;
+    }
+}
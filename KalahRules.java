@@ -0,0 +1,59 @@
+/**
+ * The Kalah rules: a last stone landing in an empty pit of the mover's
+ * own row captures it and the stones across from it, if there are any,
+ * and when either row runs out the stones left go to their owner.
+ * @author Ashton Headley
+ */
+public class KalahRules extends RuleVariant {
+
+    // marks a capture that took nothing from across, so that one from pit 0 is not 0;
+    // any other capture is in the form MoveEngine uses on the standard board
+    private static final int CAPTURED = 1 << 13;
+
+    private final boolean acrossEmpty;
+
+    /**
+     * Initialize the class
+     */
+    public KalahRules() {
+        this("Kalah", false);
+    }
+
+    /**
+     * Initialize a variant of Kalah
+     * @param name the name players see
+     * @param acrossEmpty whether landing in an empty pit captures even when the pit across is empty
+     */
+    protected KalahRules(String name, boolean acrossEmpty) {
+        super(name);
+        this.acrossEmpty = acrossEmpty;
+    }
+
+    @Override
+    protected boolean canCapture(BoardGeometry geometry, int player, int slot) {
+        int offset = geometry.offsetOf(player);
+        return slot >= offset && slot < offset + geometry.getPitsPerSide();
+    }
+
+    @Override
+    protected int capture(int[] pits, BoardGeometry geometry, int player, int slot) {
+        int inverse = geometry.opposite(slot);
+        int taken = pits[inverse];
+        if (pits[slot] != 1 || (taken == 0 && !acrossEmpty)) {
+            return 0;
+        }
+        pits[geometry.storeOf(player)] += taken + 1;
+        pits[slot] = 0;
+        pits[inverse] = 0;
+        return (taken == 0 ? CAPTURED : 0) | slot << 8 | taken;
+    }
+
+    @Override
+    protected void uncapture(int[] pits, BoardGeometry geometry, int player, int capture) {
+        int slot = (capture >>> 8) & 0x1F;
+        int taken = capture & 0xFF;
+        pits[geometry.storeOf(player)] -= taken + 1;
+        pits[slot] = 1;
+        pits[geometry.opposite(slot)] = taken;
+    }
+}
@@ -0,0 +1,476 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves Kalah with the rules of {@link Model}, writing a
+ * {@link SolvedDatabase} and the value of the starting position.
+ *
+ * The work has two parts, as in Irving, Donkers and Uiterwijk's solution
+ * of Kalah:
+ * <ol>
+ * <li>Every position with up to a given number of stones in the pits is
+ * solved, one stone count at a time from 0, the same way
+ * {@link EndgameGenerator} does. Each count is a file of its own; lower
+ * counts are read through the database's bounded page cache and only the
+ * count being solved is held in memory.</li>
+ * <li>The starting position is solved with an exact alpha-beta search that
+ * stops at positions the database covers, narrowing a window around the
+ * value with null-window searches.</li>
+ * </ol>
+ * Progress is saved to a checkpoint file in the directory: while a stone
+ * count is being solved, the parts of it changed since the last
+ * checkpoint are written to its file every so often, and every null-window
+ * search of the second part saves the bounds it proved. A stopped run
+ * started again with the same directory continues where it left off.
+ *
+ * A database covering every stone count of a game, 36 stones for 3 per
+ * pit and 48 for 4, solves every position of it. The largest counts have
+ * up to 3 * 10^12 positions each, so a full run needs terabytes of disk;
+ * with fewer counts the search of the second part does the rest.
+ *
+ * Usage: java KalahSolver [stones per pit] [database stones] [directory] [threads] [cache MB]
+ * @author Ashton Headley
+ */
+public class KalahSolver {
+
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+
+    /**
+     * Bytes per in-memory segment of the level being solved
+     */
+    private static final int SEGMENT_BITS = 24;
+
+    /**
+     * Time between checkpoints of a level in milliseconds
+     */
+    private static final long CHECKPOINT_MILLIS = 60_000;
+
+    // clears the stores, so positions that differ only there share a transposition table entry
+    private static final long STORE_MASK = ~(((1L << PackedBoard.STORE_BITS) - 1) << PackedBoard.STORE_SHIFT);
+
+    private final Path directory;
+    private final int threads;
+    private final int cacheMegabytes;
+    private long checkpointMillis = CHECKPOINT_MILLIS;
+    private Properties checkpoint;
+
+    // the level being solved
+    private SolvedDatabase lower;
+    private EndgameTable ranks;
+    private int levelStones;
+    private byte[][] segments;
+    private boolean[] dirty;
+
+    // the search of the starting position
+    private TranspositionTable table;
+    private long nodes;
+
+    /**
+     * Initialize the class
+     * @param directory where the database and checkpoint are kept
+     * @param threads number of worker threads solving a level
+     * @param cacheMegabytes most memory for cached pages of solved levels
+     */
+    public KalahSolver(Path directory, int threads, int cacheMegabytes) {
+        this.directory = directory;
+        this.threads = threads;
+        this.cacheMegabytes = cacheMegabytes;
+    }
+
+    /**
+     * Solve a game from the command line
+     * @param args optional stones per pit, database stone count, directory, threads and cache size
+     */
+    public static void main(String[] args) throws Exception {
+        int stones = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int levels = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Path directory = Paths.get(args.length > 2 ? args[2] : "kalah-" + stones);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int cache = args.length > 4 ? Integer.parseInt(args[4]) : 1024;
+
+        KalahSolver solver = new KalahSolver(directory, threads, cache);
+        solver.solveLevels(Math.min(levels, 2 * MoveEngine.PITS_PER_SIDE * stones));
+        int value = solver.solveStart(stones);
+        System.out.printf("Kalah(6,%d): the first player finishes %s by %d%n", stones,
+                value > 0 ? "ahead" : value < 0 ? "behind" : "level", Math.abs(value));
+    }
+
+    /**
+     * Set how often a level in progress is saved
+     * @param checkpointMillis time between checkpoints in milliseconds
+     */
+    public void setCheckpointMillis(long checkpointMillis) {
+        this.checkpointMillis = checkpointMillis;
+    }
+
+    /**
+     * Solve every stone count up to a maximum, continuing from the checkpoint
+     * @param maxStones largest stone count to solve
+     * @throws IOException if the directory cannot be written
+     */
+    public void solveLevels(int maxStones) throws Exception {
+        Files.createDirectories(directory);
+        checkpoint = SolvedDatabase.readCheckpoint(directory);
+        ranks = new EndgameTable(SolvedDatabase.MAX_LEVEL, SolvedDatabase.MAX_LEVEL + 1, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int stones = completed(); stones <= maxStones; stones = completed()) {
+                long start = System.nanoTime();
+                lower = stones > 0 ? new SolvedDatabase(directory, stones, cacheMegabytes) : null;
+                try {
+                    solveLevel(stones, pool);
+                } finally {
+                    if (lower != null) {
+                        lower.close();
+                    }
+                }
+                System.out.printf("stones %2d  %d positions  %.1f s%n", stones, ranks.levelSize(stones),
+                        (System.nanoTime() - start) / 1e9);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Find the value of the starting position, continuing from the checkpoint
+     * @param stonesPerPit stones in each pit at the start
+     * @return how far ahead the first player finishes under perfect play
+     * @throws IOException if the directory cannot be read or written
+     */
+    public int solveStart(int stonesPerPit) throws Exception {
+        checkpoint = SolvedDatabase.readCheckpoint(directory);
+        String name = "start." + stonesPerPit + ".";
+        int total = 2 * MoveEngine.PITS_PER_SIDE * stonesPerPit;
+        int low = Integer.parseInt(checkpoint.getProperty(name + "lower", Integer.toString(-total)));
+        int high = Integer.parseInt(checkpoint.getProperty(name + "upper", Integer.toString(total)));
+
+        long[] start = new long[2];
+        PackedBoard.initial(stonesPerPit, start);
+        table = new TranspositionTable(256);
+        try (SolvedDatabase database = completed() > 0 ? new SolvedDatabase(directory, completed(), cacheMegabytes) : null) {
+            lower = database;
+            levelStones = completed();
+
+            // null-window searches halve the range of possible values until one is left
+            while (low < high) {
+                int guess = Math.floorDiv(low + high + 1, 2);
+                long begin = System.nanoTime();
+                nodes = 0;
+                int value = search(start[0], start[1], guess - 1, guess);
+                if (value >= guess) {
+                    low = guess;
+                } else {
+                    high = guess - 1;
+                }
+                checkpoint.setProperty(name + "lower", Integer.toString(low));
+                checkpoint.setProperty(name + "upper", Integer.toString(high));
+                saveCheckpoint();
+                System.out.printf("value %s %d  range [%d, %d]  %d nodes  %.1f s%n", value >= guess ? ">=" : "<",
+                        guess, low, high, nodes, (System.nanoTime() - begin) / 1e9);
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the number of stone counts solved
+     * @return stone counts from 0 that are complete
+     */
+    private int completed() {
+        return Integer.parseInt(checkpoint.getProperty("completed", "0"));
+    }
+
+    /**
+     * Solve one stone count, saving it every so often
+     * @param stones the stone count
+     * @param pool executor running the workers
+     */
+    private void solveLevel(int stones, ExecutorService pool) throws Exception {
+        levelStones = stones;
+        long size = ranks.levelSize(stones);
+        Path file = SolvedDatabase.levelFile(directory, stones);
+        load(file, size, Integer.toString(stones).equals(checkpoint.getProperty("partial")));
+        checkpoint.setProperty("partial", Integer.toString(stones));
+
+        Future<?>[] workers = new Future<?>[threads];
+        for (int t = 0; t < threads; ++t) {
+            final int first = t;
+            workers[t] = pool.submit(() -> {
+                int[] pits = new int[EndgameTable.PITS];
+                // interleave indices so every worker gets a mix of easy and hard positions
+                for (long index = first; index < size; index += threads) {
+                    if (value(index) == UNSOLVED) {
+                        ranks.unrank(index, stones, pits);
+                        store(index, solve(pits));
+                    }
+                }
+            });
+        }
+
+        // save what is solved while the workers go on; a value once set never changes
+        for (Future<?> worker : workers) {
+            while (true) {
+                try {
+                    worker.get(checkpointMillis, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (java.util.concurrent.TimeoutException e) {
+                    save(file);
+                    saveCheckpoint();
+                }
+            }
+        }
+        save(file);
+        checkpoint.setProperty("completed", Integer.toString(stones + 1));
+        checkpoint.remove("partial");
+        saveCheckpoint();
+        segments = null;
+    }
+
+    /**
+     * Read a level saved part way, or start one from nothing
+     */
+    private void load(Path file, long size, boolean resume) throws IOException {
+        int count = (int) ((size + (1 << SEGMENT_BITS) - 1) >>> SEGMENT_BITS);
+        segments = new byte[count][];
+        dirty = new boolean[count];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            resume &= channel.size() == size;
+            for (int s = 0; s < count; ++s) {
+                segments[s] = new byte[(int) Math.min(1 << SEGMENT_BITS, size - ((long) s << SEGMENT_BITS))];
+                if (resume) {
+                    ByteBuffer buffer = ByteBuffer.wrap(segments[s]);
+                    while (buffer.hasRemaining() && channel.read(buffer, ((long) s << SEGMENT_BITS) + buffer.position()) >= 0) {
+                        // keep reading
+                    }
+                } else {
+                    Arrays.fill(segments[s], UNSOLVED);
+                    dirty[s] = true;
+                }
+            }
+            if (!resume) {
+                channel.truncate(0);
+            }
+        }
+    }
+
+    /**
+     * Write the segments changed since the last save to a level's file
+     */
+    private void save(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (int s = 0; s < segments.length; ++s) {
+                if (dirty[s]) {
+                    // cleared first, so a value stored while writing marks it again
+                    dirty[s] = false;
+                    ByteBuffer buffer = ByteBuffer.wrap(segments[s]);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, ((long) s << SEGMENT_BITS) + buffer.position());
+                    }
+                }
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Replace the checkpoint file in one step, so a crash leaves the old or the new one
+     */
+    private void saveCheckpoint() throws IOException {
+        Path temporary = directory.resolve(SolvedDatabase.CHECKPOINT + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            checkpoint.store(out, "KalahSolver progress");
+        }
+        Files.move(temporary, directory.resolve(SolvedDatabase.CHECKPOINT),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private byte value(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)][(int) (index & ((1 << SEGMENT_BITS) - 1))];
+    }
+
+    private void store(long index, int value) {
+        int s = (int) (index >>> SEGMENT_BITS);
+        segments[s][(int) (index & ((1 << SEGMENT_BITS) - 1))] = (byte) value;
+        dirty[s] = true;
+    }
+
+    /**
+     * Find the value of a position of the level being solved
+     * @param pits mover's pits 0-5 then the opponent's pits 0-5
+     * @return how far ahead the mover finishes on these stones
+     */
+    private int solve(int[] pits) {
+        long own = 0, other = 0;
+        int ownSum = 0, otherSum = 0;
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            own |= (long) pits[i] << (i * PackedBoard.PIT_BITS);
+            other |= (long) pits[i + MoveEngine.PITS_PER_SIDE] << (i * PackedBoard.PIT_BITS);
+            ownSum += pits[i];
+            otherSum += pits[i + MoveEngine.PITS_PER_SIDE];
+        }
+
+        // the game is over, both players keep what is on their side
+        if (ownSum == 0 || otherSum == 0) {
+            return ownSum - otherSum;
+        }
+
+        // play as player 1 with empty stores so the stores hold what the move gained
+        long[] child = new long[2];
+        int[] next = new int[EndgameTable.PITS];
+        int best = Integer.MIN_VALUE;
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (pits[pit] == 0) {
+                continue;
+            }
+            PackedBoard.applyMove(other, own, pit, child);
+            int gain = PackedBoard.get(child[0], child[1], MoveEngine.STORE_ONE)
+                    - PackedBoard.get(child[0], child[1], MoveEngine.STORE_TWO);
+
+            int value;
+            if (PackedBoard.isGameOver(child[0], child[1])) {
+                value = gain;
+            } else if (PackedBoard.sideToMove(child[0]) == 1) {
+                value = gain + lookup(child[1], child[0], next);
+            } else {
+                value = gain - lookup(child[0], child[1], next);
+            }
+            best = Math.max(best, value);
+        }
+        return best;
+    }
+
+    /**
+     * Get the value of a position reached while solving a level
+     * @param mover packed side of the player to move
+     * @param opponent packed side of the other player
+     * @param pits scratch array
+     * @return the position's value for the player to move
+     */
+    private int lookup(long mover, long opponent, int[] pits) {
+        int stones = 0;
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            pits[i] = PackedBoard.get(0, mover, i);
+            pits[i + MoveEngine.PITS_PER_SIDE] = PackedBoard.get(0, opponent, i);
+            stones += pits[i] + pits[i + MoveEngine.PITS_PER_SIDE];
+        }
+        if (stones < levelStones) {
+            return lower.get(pits, stones);
+        }
+
+        long index = ranks.rank(pits, stones);
+        byte value = value(index);
+        if (value == UNSOLVED) {
+            value = (byte) solve(pits);
+            store(index, value);
+        }
+        return value;
+    }
+
+    /**
+     * Exact alpha-beta search over the stones still in the pits
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param alpha lower bound
+     * @param beta upper bound
+     * @return how far ahead the player to move finishes on the stones in the
+     * pits, exact if strictly between the bounds, otherwise a bound on it
+     */
+    private int search(long hi, long lo, int alpha, int beta) {
+        ++nodes;
+        if (lower != null && PackedBoard.stonesInPits(hi, lo) < levelStones) {
+            return lower.probe(hi, lo);
+        }
+
+        long key = Zobrist.hash(hi & STORE_MASK, lo & STORE_MASK);
+        long entry = table.probe(key);
+        int hint = -1;
+        if (entry != 0) {
+            int stored = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            hint = TranspositionTable.move(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && stored >= beta)
+                    || (bound == TranspositionTable.UPPER && stored <= alpha)) {
+                return stored;
+            }
+        }
+
+        int side = PackedBoard.sideToMove(hi);
+        int store = MoveEngine.storeOf(side), opponent = MoveEngine.storeOf(3 - side);
+        int margin = PackedBoard.get(hi, lo, store) - PackedBoard.get(hi, lo, opponent);
+        long[] child = new long[2];
+        int best = Integer.MIN_VALUE, bestPit = -1;
+        int alphaOrig = alpha;
+
+        for (int i = -1; i < MoveEngine.PITS_PER_SIDE && alpha < beta; ++i) {
+            // the remembered best move first, then extra turns before the rest
+            int pit = i < 0 ? hint : order(hi, lo, i);
+            if (pit < 0 || (i >= 0 && pit == hint) || !PackedBoard.isLegal(hi, lo, pit)) {
+                continue;
+            }
+            PackedBoard.applyMove(hi, lo, pit, child);
+            int gain = PackedBoard.get(child[0], child[1], store) - PackedBoard.get(child[0], child[1], opponent) - margin;
+
+            int value;
+            if (PackedBoard.isGameOver(child[0], child[1])) {
+                value = gain;
+            } else if (PackedBoard.sideToMove(child[0]) == side) {
+                value = gain + search(child[0], child[1], alpha - gain, beta - gain);
+            } else {
+                value = gain - search(child[0], child[1], gain - beta, gain - alpha);
+            }
+            if (value > best) {
+                best = value;
+                bestPit = pit;
+                alpha = Math.max(alpha, value);
+            }
+        }
+
+        int bound = best <= alphaOrig ? TranspositionTable.UPPER : best >= beta ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+        table.store(key, 1, bound, best, bestPit);
+        return best;
+    }
+
+    /**
+     * Order the pits: the ones that end in the store first, nearest the store first
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param i position in the order, 0-5
+     * @return the pit
+     */
+    private static int order(long hi, long lo, int i) {
+        int offset = MoveEngine.offsetOf(PackedBoard.sideToMove(hi));
+        int extra = 0;
+        for (int pit = MoveEngine.PITS_PER_SIDE - 1; pit >= 0; --pit) {
+            int stones = PackedBoard.get(hi, lo, offset + pit);
+            if (stones > 0 && stones % MoveEngine.CYCLE == MoveEngine.PITS_PER_SIDE - pit && extra++ == i) {
+                return pit;
+            }
+        }
+        int rest = extra;
+        for (int pit = MoveEngine.PITS_PER_SIDE - 1; pit >= 0; --pit) {
+            int stones = PackedBoard.get(hi, lo, offset + pit);
+            if (!(stones > 0 && stones % MoveEngine.CYCLE == MoveEngine.PITS_PER_SIDE - pit) && rest++ == i) {
+                return pit;
+            }
+        }
+        return -1;
+    }
+}
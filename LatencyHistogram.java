@@ -0,0 +1,126 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets whose width grows with the value, so any
+ * duration from a nanosecond to hours is kept to within about 3%.
+ *
+ * Every power of two is split into 32 equal buckets. Recording is one
+ * atomic increment and never allocates, so many threads can record at
+ * once. Percentiles are computed from the buckets and are reported as the
+ * upper end of the bucket they fall in.
+ * @author Ashton Headley
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Count one duration
+     * @param nanos the duration, negative values count as 0
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * Find the bucket of a value
+     * @param value a value of at least 0
+     * @return bucket index
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Get the largest value that falls in a bucket
+     * @param bucket bucket index
+     * @return upper end of the bucket
+     */
+    private static long highestIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BITS) - 1;
+        long low = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    /**
+     * Get the number of durations counted
+     * @return total count
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Get a percentile of the durations counted
+     * @param percent 0 to 100
+     * @return the duration at or below which that share of durations fall, or 0 if none were counted
+     */
+    public long getPercentile(double percent) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percent / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestIn(i);
+            }
+        }
+        return highestIn(BUCKETS - 1);
+    }
+
+    /**
+     * Get the longest duration counted
+     * @return upper end of the highest bucket in use, or 0 if none were counted
+     */
+    public long getMax() {
+        for (int i = BUCKETS - 1; i >= 0; --i) {
+            if (counts.get(i) > 0) {
+                return highestIn(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Forget every duration counted
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Describe the common percentiles in microseconds
+     * @return count, 50th, 90th, 99th and 99.9th percentile and maximum
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                getCount(), getPercentile(50) / 1e3, getPercentile(90) / 1e3, getPercentile(99) / 1e3,
+                getPercentile(99.9) / 1e3, getMax() / 1e3);
+    }
+}
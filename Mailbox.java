@@ -0,0 +1,71 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free queue with many producers and one consumer, used as the inbox
+ * of a match in {@link GameServer}.
+ *
+ * Producers append by swapping the last node with one atomic exchange and
+ * then linking the previous last node to it, so they never retry or wait
+ * for each other. Only one thread at a time may call {@link #poll} and
+ * {@link #isEmpty}. A message offered by one producer is polled after the
+ * messages that producer offered before it.
+ * @author Ashton Headley
+ */
+public class Mailbox<T> {
+
+    /**
+     * A queued message
+     */
+    private static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    // producers append after last; the consumer reads after first, an empty marker node
+    private final AtomicReference<Node<T>> last;
+    private Node<T> first;
+
+    /**
+     * Initialize an empty mailbox
+     */
+    public Mailbox() {
+        first = new Node<>(null);
+        last = new AtomicReference<>(first);
+    }
+
+    /**
+     * Add a message; safe to call from any thread
+     * @param value the message
+     */
+    public void offer(T value) {
+        Node<T> node = new Node<>(value);
+        last.getAndSet(node).next = node;
+    }
+
+    /**
+     * Take the oldest message; only the consumer may call this
+     * @return the message, or null if none is visible yet
+     */
+    public T poll() {
+        Node<T> next = first.next;
+        if (next == null) {
+            return null;
+        }
+        T value = next.value;
+        next.value = null;
+        first = next;
+        return value;
+    }
+
+    /**
+     * Whether there is no message to poll; only the consumer may call this
+     * @return true if {@link #poll} would return null
+     */
+    public boolean isEmpty() {
+        return first.next == null;
+    }
+}
@@ -5,10 +5,11 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.geom.Ellipse2D;
 
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+import javax.swing.event.ChangeEvent;
 
 
 /**
@@ -23,8 +24,13 @@ class MancalaGame extends JPanel implements MouseListener {
      */
     BoardStrategy boardStrategy;
     Model model;
-    BackupCommand backup;
+    MoveHistory history = new MoveHistory();
     boolean turnAvailable = true;
+    ComputerPlayer computerPlayer;
+    boolean computerThinking;
+    BoardLayerCache boardLayer = new BoardLayerCache();
+    StoneLayout stoneLayout;
+    FrameStats frameStats = new FrameStats();
 
     /**
      * Initialize the class
@@ -35,8 +41,7 @@ class MancalaGame extends JPanel implements MouseListener {
         setBorder(BorderFactory.createLineBorder(Color.black));
 
         addMouseListener(this);
-
-        backup = new BackupCommand();
+        model.attach(this::modelChanged);
     }
 
     /**
@@ -48,29 +53,118 @@ class MancalaGame extends JPanel implements MouseListener {
         setBorder(BorderFactory.createLineBorder(Color.black));
 
         addMouseListener(this);
-
-        backup = new BackupCommand();
+        model.attach(this::modelChanged);
     }
 
     /**
-     * Undo a move and restores the previous state of the game
+     * Undo a move and restores the previous state of the game.
+     * Against the computer, its moves are taken back too, back to the human player's last move.
      */
     public void performUndoAction() {
-        backup.undo();
+        if (computerThinking || !history.undo(model)) {
+            return;
+        }
+        while (computerPlayer != null && model.getCurrentPlayer() == computerPlayer.getPlayer()
+                && history.undo(model)) {
+            // keep going until it is the human player's move
+        }
         turnAvailable = true;
-        repaint();
+        playComputerTurn();
+    }
+
+    /**
+     * Play an undone move again.
+     * Against the computer, its undone replies are played again too.
+     */
+    public void performRedoAction() {
+        if (computerThinking || !history.redo(model)) {
+            return;
+        }
+        while (computerPlayer != null && model.getCurrentPlayer() == computerPlayer.getPlayer()
+                && history.redo(model)) {
+            // keep going until it is the human player's move
+        }
+        turnAvailable = !model.getSwitchTurnAvailable();
+        playComputerTurn();
     }
 
     /**
      * A player confirmed to end their turn and switches to the other player
      */
     public void performConfirmTurnAction() {
-        boolean success = model.confirmTurn();
-        System.out.println("Confirm action: " + success);
+        boolean success = history.confirm(model);
         if (success) {
-            backup.clear();
+            GameMetrics.countConfirm();
             turnAvailable = true;
+            playComputerTurn();
+        }
+    }
+
+    /**
+     * Let the computer take its turn if it is the player to move.
+     * The search runs in the background and the moves are applied on the event thread.
+     */
+    public void playComputerTurn() {
+        if (computerPlayer == null || model.getWinningPlayer() >= 0
+                || model.getCurrentPlayer() != computerPlayer.getPlayer()) {
+            return;
+        }
+        turnAvailable = false;
+        computerThinking = true;
+        Model position = new Model(model);
+
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return computerPlayer.chooseMove(position);
+            }
+
+            @Override
+            protected void done() {
+                int pit;
+                computerThinking = false;
+                try {
+                    pit = get();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                if (pit < 0) {
+                    return;
+                }
+                history.play(model, pit);
+
+                if (model.getSwitchTurnAvailable()) {
+                    performConfirmTurnAction();
+                } else {
+                    // extra turn, or the game ended
+                    playComputerTurn();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Repaint the parts of the board the model reports as changed.
+     * A move only touches a few pits, so only those are redrawn; switching
+     * turns flips the board and ending the game changes the player info,
+     * so those repaint everything.
+     * @param e the change, a {@link ModelChangeEvent} for moves
+     */
+    private void modelChanged(ChangeEvent e) {
+        if (!(e instanceof ModelChangeEvent) || stoneLayout == null) {
+            repaint();
+            return;
+        }
+        ModelChangeEvent change = (ModelChangeEvent) e;
+        if (change.isTurnSwitched() || change.isGameOver()
+                || change.getChangedSlots() == ModelChangeEvent.ALL_SLOTS) {
             repaint();
+            return;
+        }
+        for (int slot = 0; slot < model.getPitStones().length; ++slot) {
+            if (change.isSlotChanged(slot)) {
+                repaint(stoneLayout.getBounds(slot));
+            }
         }
     }
 
@@ -83,54 +177,29 @@ class MancalaGame extends JPanel implements MouseListener {
         return boardStrategy.getSize();
     }
 
+    /**
+     * Get the stone layout for the current board, computing it when the
+     * board style changes or a slot holds more stones than it has room for
+     * @return the stone layout
+     */
+    protected StoneLayout getStoneLayout() {
+        int[] pits = model.getPitStones();
+        int total = 0;
+        for (int count : pits) {
+            total += count;
+        }
+        if (stoneLayout == null || !stoneLayout.fits(boardStrategy, total)) {
+            stoneLayout = new StoneLayout(boardStrategy, Math.max(total, 1));
+        }
+        return stoneLayout;
+    }
+
     /**
      * Draw the stones in the mancala stores
      * @param g frame Graphics object
      */
     protected void drawStonesStores(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g;
-        int cx, cy; // extra centering correction
-
-        for (int pit = 0; pit < model.getPitStones().length; ++pit) {
-            if (pit == 6 || pit == 13) {
-                cx = -3;
-                cy = 0;
-
-                for (int i = 0; i < model.getPitStones()[pit]; i++)
-                {
-                    if (i % 5 == 0)
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx-40, boardStrategy.getPitY(pit) + (i*5)-20, 15, 15);
-                        g2.fill(stone);
-                    }
-                    else if (i % 5 == 1)
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx-25, boardStrategy.getPitY(pit) + (i*5)-20, 15, 15);
-                        g2.fill(stone);
-                    }
-                    else if (i % 5 == 2)
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx-10, boardStrategy.getPitY(pit) + (i*5)-40, 15, 15);
-                        g2.fill(stone);
-                    }
-                    else if (i % 5 == 3)
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx+5, boardStrategy.getPitY(pit) + (i*5)-50, 15, 15);
-                        g2.fill(stone);
-                    }
-                    else
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx+20, boardStrategy.getPitY(pit) + cy+ (i*5)-40, 15, 15);
-                        g2.fill(stone);
-                    }
-
-
-                    g2.drawString( Integer.toString(model.getPitStones()[pit]), boardStrategy.getPitCenterX(pit) + cx, boardStrategy.getPitCenterY(pit) + cy +150);
-                }
-            }
-
-        }
-
+        getStoneLayout().drawStores((Graphics2D) g, model.getPitStones());
     }
 
     /**
@@ -138,52 +207,7 @@ class MancalaGame extends JPanel implements MouseListener {
      * @param g frame Graphics object
      */
     protected void drawStonesPits(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g;
-        int cx, cy; // extra centering correction
-
-        for (int pit = 0; pit < model.getPitStones().length; ++pit) {
-            if (pit == 6 || pit == 13) {
-                cx = -3;
-                cy = 0;
-            } else if (pit > 9) {
-                cx = 3;
-                cy = 6;
-            } else {
-                cx = 7;
-                cy = 9;
-            }
-
-            if (pit != 6 && pit != 13)
-            {
-                for (int i = 0; i < model.getPitStones()[pit]; i++)
-                {
-                    if (i <= 2)
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx + (i*16), boardStrategy.getPitCenterY(pit) + cy +10, 15, 15);
-                        g2.fill(stone);
-                    }
-                    else if (i > 2 && i <= 6)
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx + (i*16)-60, boardStrategy.getPitCenterY(pit) + cy +25, 15, 15);
-                        g2.fill(stone);
-                    }
-                    else if (i > 6 && i <= 10)
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx + (i*16)-130, boardStrategy.getPitCenterY(pit) + cy +40, 15, 15);
-                        g2.fill(stone);
-                    }
-                    else
-                    {
-                        Ellipse2D stone = new Ellipse2D.Double(boardStrategy.getPitCenterX(pit)- cx + (i*16)-190, boardStrategy.getPitCenterY(pit) + cy +55, 15, 15);
-                        g2.fill(stone);
-                    }
-                }
-
-                g2.drawString( Integer.toString(model.getPitStones()[pit]), boardStrategy.getPitCenterX(pit) + cx, boardStrategy.getPitCenterY(pit) + cy +107);
-            }
-
-        }
-
+        getStoneLayout().drawPits((Graphics2D) g, model.getPitStones());
     }
 
     /**
@@ -191,20 +215,7 @@ class MancalaGame extends JPanel implements MouseListener {
      * @param g Graphics object
      */
     protected void drawPlayerInfo(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g;
-        if ( model.getWinningPlayer() < 0 ) {
-            g2.drawString("Player " + model.getCurrentPlayer() + "'s turn", 20, 20);
-
-            // labeling the player on which side
-            g2.drawString("Player " + model.getCurrentPlayer() + " ->", 350, 350);
-            g2.drawString("<- "+"Player " + model.getOtherPlayer(), 350, 30);
-        } else {
-            if (model.getWinningPlayer() == 0) {
-                g2.drawString("Draw!", 20, 20);
-            } else {
-                g2.drawString("Player " + model.getWinningPlayer() + " wins!", 20, 20);
-            }
-        }
+        BoardRenderer.drawPlayerInfo((Graphics2D) g, model);
     }
 
 
@@ -214,12 +225,14 @@ class MancalaGame extends JPanel implements MouseListener {
      */
     @Override
     public void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
 
         g2.setColor(Color.black);
 
-        boardStrategy.drawBoard(g2);
+        // the pits and stores only change with the player to move, so they are drawn from a cache
+        boardLayer.paint(g2, boardStrategy, getWidth(), getHeight(), getBackground(), getGraphicsConfiguration());
 
         g2.setColor(Color.DARK_GRAY);
         drawStonesPits(g2);
@@ -228,6 +241,17 @@ class MancalaGame extends JPanel implements MouseListener {
         g2.setColor(Color.black);
         drawPlayerInfo(g2);
 
+        long nanos = System.nanoTime() - start;
+        frameStats.record(nanos);
+        GameMetrics.recordPaint(nanos);
+    }
+
+    /**
+     * Returns how long the frames painted so far took
+     * @return the frame statistics
+     */
+    public FrameStats getFrameStats() {
+        return frameStats;
     }
 
     /**
@@ -242,15 +266,13 @@ class MancalaGame extends JPanel implements MouseListener {
             int my = e.getY();
 
             // loop through all pits in the bottom row
-            for (int pit = 0; pit < 6; ++pit) {
+            for (int pit = 0; pit < model.getGeometry().getPitsPerSide(); ++pit) {
                 x = boardStrategy.getPitX(pit);
                 y = boardStrategy.getPitY(pit);
 
                 // check if the click was inside the pit area.
                 if (mx > x && mx < x + boardStrategy.pitWidth && my > y && my < y + boardStrategy.pitHeight + 50) {
-                    backup.makeBackup();
-                    model.doPlayerTurn(pit);
-                    repaint();
+                    history.play(model, pit);
                     if (model.getSwitchTurnAvailable())
                     {
                     	turnAvailable = false;
@@ -267,69 +289,11 @@ class MancalaGame extends JPanel implements MouseListener {
     @Override public void mouseReleased(MouseEvent e) {}
 
     /**
-     * Returns a snapshot containing the game, strategy layout, and model
-     * @return a snapshot of the state of the game
-     */
-    private GameSnapshot createSnapshot() {
-        return new GameSnapshot(this, boardStrategy, model);
-    }
-
-    /**
-     * Creates a snapshot of the current game state
-     */
-    class GameSnapshot {
-        private MancalaGame game;
-        private BoardStrategy boardStrategy;
-        private Model model;
-
-        public GameSnapshot(MancalaGame game, BoardStrategy boardStrategy, Model model) {
-            this.game = game;
-            this.boardStrategy = boardStrategy.getCopy();
-            this.model = new Model(model);
-            this.boardStrategy.setGame(this.model);
-        }
-
-        /**
-         * Sets the current model and board layout to its old state 
-         */
-        public void restore() {
-            game.model = model;
-            game.boardStrategy = boardStrategy;
-        }
-    }
-
-    /**
-     * Controls the undo function
+     * Sets the computer opponent, or null for two human players
+     * @param computerPlayer the computer player
      */
-    class BackupCommand {
-        private int timesChanged = 0;
-        private GameSnapshot backup;
-        private boolean changed;
-
-        public void makeBackup() {
-            backup = createSnapshot();
-            changed = true;
-        }
-
-        /**
-         * undo and restores the previous state of the game if it hasn't been changed and the number of undo is less than 3 
-         */
-        public void undo() {
-            if (backup != null && changed && timesChanged < 3) {
-                backup.restore();
-                changed = false;
-                timesChanged++;
-            }
-        }
-
-        /**
-         * Clears the saved state and restarts the undo counter to 0
-         */
-        public void clear() {
-            backup = null;
-            changed = false;
-            timesChanged = 0;
-        }
+    public void setComputerPlayer(ComputerPlayer computerPlayer) {
+        this.computerPlayer = computerPlayer;
     }
 
     /**
@@ -338,6 +302,8 @@ class MancalaGame extends JPanel implements MouseListener {
      */
     public void setBoardStrategy(BoardStrategy boardStrategy) {
         this.boardStrategy = boardStrategy;
+        boardLayer.invalidate();
+        stoneLayout = null;
     }
 
     /**
@@ -0,0 +1,14 @@
+
+/**
+ * Something that can choose moves in a game, human or computer
+ * @author Ashton Headley
+ */
+public interface MancalaPlayer {
+
+    /**
+     * Choose a pit for the player to move
+     * @param model the game, which must not be modified
+     * @return pit 0-5 relative to the player to move, or -1 if there is no legal move
+     */
+    public int chooseMove(Model model);
+}
@@ -1,4 +1,9 @@
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import javax.swing.JOptionPane;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -10,11 +15,25 @@ import javax.swing.event.ChangeListener;
 public class MancalaStrategy implements MancalaFormatter {
 
 	/**
-	 * Starts a mancala game by allowing users to select a board style and how many stones per pit
+	 * Starts a mancala game by allowing users to select a board size, rules and style and how many stones per pit
 	 */
     @Override
     public MancalaGame createMancalaGame() {
-        Model model = new Model();
+        String[] sizeArray = new String[BoardGeometry.MAX_PITS - BoardGeometry.MIN_PITS + 1];
+        for (int i = 0; i < sizeArray.length; ++i)
+        {
+            sizeArray[i] = Integer.toString(BoardGeometry.MIN_PITS + i);
+        }
+        int standardSize = MoveEngine.PITS_PER_SIDE - BoardGeometry.MIN_PITS;
+        int size = JOptionPane.showOptionDialog(null, "Select the number of pits per side.", "Options Menu", JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, sizeArray, sizeArray[standardSize]);
+        RuleVariant[] variants = RuleVariant.values();
+        String[] rulesArray = new String[variants.length];
+        for (int i = 0; i < variants.length; ++i)
+        {
+            rulesArray[i] = variants[i].getName();
+        }
+        int rules = JOptionPane.showOptionDialog(null, "Select the rules.", "Options Menu", JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, rulesArray, rulesArray[0]);
+        Model model = new Model(BoardGeometry.of(BoardGeometry.MIN_PITS + (size < 0 ? standardSize : size)), variants[Math.max(rules, 0)]);
         BoardStrategy chosenBoard;
 
         String[] boardOptionArray = {"Default", "Beach"};
@@ -30,15 +49,30 @@ public class MancalaStrategy implements MancalaFormatter {
         game.setBackground(chosenBoard.backgroundColor);
 
         // TODO Auto-generated method stub
-        String[] optionArray = {"Three", "Four"};
+        String[] optionArray = {"Three", "Four", "Five", "Six"};
         int option = JOptionPane.showOptionDialog(null, "Select the number of stones per pit.", "Options Menu", JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, optionArray, optionArray[0]);
-        if (option == 0)
+        game.model.setInitialStonesPerPit(3 + Math.max(option, 0));
+
+        // the computer player searches packed positions, which only the standard board and rules have
+        int opponent = 0;
+        if (model.getEngine().isStandard())
         {
-            game.model.setInitialStonesPerPit(3);
+            String[] opponentArray = {"Human", "Computer"};
+            opponent = JOptionPane.showOptionDialog(null, "Select the opponent.", "Options Menu", JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, opponentArray, opponentArray[0]);
         }
-        else
+        if (opponent == 1)
         {
-            game.model.setInitialStonesPerPit(4);
+            ComputerPlayer computer = new ComputerPlayer(2, ComputerPlayer.DEFAULT_BUDGET_MILLIS);
+            Path bookFile = Paths.get("opening.book");
+            if (Files.exists(bookFile))
+            {
+                try {
+                    computer.setOpeningBook(OpeningBook.open(bookFile));
+                } catch (IOException e) {
+                    System.out.println("Could not load opening book: " + e.getMessage());
+                }
+            }
+            game.setComputerPlayer(computer);
         }
         game.repaint();
 
@@ -1,5 +1,6 @@
 
 import java.awt.Color;
+import javax.management.JMException;
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -12,9 +13,19 @@ public class MancalaTest {
 
     /**
      * This method is run when the program starts
-     * @param args arguments passed to the program
+     * @param args "metrics" or "metrics-json" to record {@link GameMetrics},
+     * print them every 10 seconds and show them over JMX
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].startsWith("metrics")) {
+            GameMetrics.setEnabled(true);
+            GameMetrics.startReporting(10_000, args[0].equals("metrics-json"), System.out);
+            try {
+                GameMetrics.registerMBean();
+            } catch (JMException e) {
+                System.out.println("Could not register metrics with JMX: " + e.getMessage());
+            }
+        }
         SwingUtilities.invokeLater( () -> {
             createAndShowGUI();
         });
@@ -40,6 +51,12 @@ public class MancalaTest {
         });
         buttonsPanel.add(undoButton);
 
+        JButton redoButton = new JButton("Redo");
+        redoButton.addActionListener(actionEvent -> {
+            game.performRedoAction();
+        });
+        buttonsPanel.add(redoButton);
+
         JButton confirmTurnButton = new JButton("Confirm turn");
         confirmTurnButton.addActionListener(actionEvent -> {
             game.performConfirmTurnAction();
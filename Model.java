@@ -1,8 +1,9 @@
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.Arrays;
 
-import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 /**
  * The model hold the array of pits and information about the players
@@ -10,7 +11,12 @@ import javax.swing.event.ChangeListener;
  */
 public class Model {
     /**
-     * Defines the amount of stones in the pits
+     * Applies moves on the absolutely indexed board
+     */
+    private MoveEngine engine;
+
+    /**
+     * The board laid out relative to the current player, refreshed after every change
      */
     private int[] pitStones;
 
@@ -36,12 +42,57 @@ public class Model {
 
     private boolean switchTurnAvailable = false;
 
+    /**
+     * Slots of the view that changed since listeners were last notified, one bit per slot
+     */
+    private int changedSlots;
+
+    /**
+     * Latest published state, written with release and read with acquire
+     * semantics through {@link #SNAPSHOT}
+     */
+    @SuppressWarnings("unused")
+    private BoardSnapshot snapshot;
+    private boolean publishing;
+    private long version;
+    private long[] packed;
+
+    private static final VarHandle SNAPSHOT;
+
+    static {
+        try {
+            SNAPSHOT = MethodHandles.lookup().findVarHandle(Model.class, "snapshot", BoardSnapshot.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     /**
      * Initialize the mancala model
      */
     public Model()
     {
-        this.pitStones = new int[14];
+        this(BoardGeometry.STANDARD);
+    }
+
+    /**
+     * Initialize the mancala model on a board of any size
+     * @param geometry the number of pits a side
+     */
+    public Model(BoardGeometry geometry)
+    {
+        this(geometry, RuleVariant.KALAH);
+    }
+
+    /**
+     * Initialize the mancala model on a board of any size under any rules
+     * @param geometry the number of pits a side
+     * @param variant the rules
+     */
+    public Model(BoardGeometry geometry, RuleVariant variant)
+    {
+        this.engine = new MoveEngine(geometry, variant);
+        this.pitStones = new int[geometry.getSlots()];
         listeners = new ArrayList<ChangeListener>();
     }
 
@@ -50,6 +101,7 @@ public class Model {
      * @param other - object, from which we deep-copy values
      */
     public Model(Model other) {
+        this.engine = new MoveEngine(other.engine);
         this.pitStones = Arrays.copyOf(other.pitStones, other.pitStones.length);
         this.currentPlayer = other.currentPlayer;
         this.winningPlayer = other.winningPlayer;
@@ -66,29 +118,68 @@ public class Model {
     public void setInitialStonesPerPit(int initialStones)
     {
 
-        // bottom row
-        for (int i = 0; i < 6; i++)
-        {
-            pitStones[i] = initialStones;
-        }
-        // top row
-        for (int i = 7; i < 13; i++)
-        {
-            pitStones[i] = initialStones;
-        }
-        // player 1 mancala
-        pitStones[6] = 0;
+        engine.reset(initialStones);
+        refreshView();
 
-        // player 2 mancala
-        pitStones[13] = 0;
+        changedSlots = ModelChangeEvent.ALL_SLOTS;
+        notifyListeners(false);
+    }
 
-        ChangeEvent event = new ChangeEvent(this);
+    /**
+     * Tell the listeners what changed since they were last notified
+     * @param turnSwitched whether the other player is now to move
+     */
+    private void notifyListeners(boolean turnSwitched) {
+        publish();
+        if (listeners.isEmpty()) {
+            changedSlots = 0;
+            return;
+        }
+        ModelChangeEvent event = new ModelChangeEvent(this, changedSlots, turnSwitched, winningPlayer >= 0);
+        changedSlots = 0;
         for (ChangeListener listener: listeners)
         {
             listener.stateChanged(event);
         }
     }
 
+    /**
+     * Start publishing a {@link BoardSnapshot} after every change, for
+     * threads other than the one playing the game. Call this on the thread
+     * that changes the model.
+     */
+    public void enableSnapshots() {
+        if (!engine.isStandard()) {
+            throw new UnsupportedOperationException("snapshots are packed, which needs the standard board and rules");
+        }
+        if (!publishing) {
+            publishing = true;
+            packed = new long[2];
+            publish();
+        }
+    }
+
+    /**
+     * Get the state as of the last change. Safe to call from any thread,
+     * unlike the other getters, which are only safe on the thread playing
+     * the game.
+     * @return the latest snapshot, or null if {@link #enableSnapshots} was not called
+     */
+    public BoardSnapshot getSnapshot() {
+        return (BoardSnapshot) SNAPSHOT.getAcquire(this);
+    }
+
+    /**
+     * Publish the current state if snapshots are enabled
+     */
+    private void publish() {
+        if (!publishing) {
+            return;
+        }
+        PackedBoard.fromModel(this, packed);
+        SNAPSHOT.setRelease(this, new BoardSnapshot(packed[0], packed[1], winningPlayer, switchTurnAvailable, version++));
+    }
+
     /**
 	 * Returns the initial number of stones per pit at the start of game
 	 * @return number of stones per pit 
@@ -124,65 +215,41 @@ public class Model {
      */
     public void switchTurn() {
 
-        // Change the active player
+        // Change the active player, the engine's pits stay where they are
         currentPlayer = getOtherPlayer();
-
-        // Reverse the pit positions
-        int[] newStones = new int[14];
-        System.arraycopy(pitStones, 7, newStones, 0, 7);
-        System.arraycopy(pitStones, 0, newStones, 7, 7);
-
-        pitStones = newStones;
+        refreshView();
     }
 
     /**
-     * Check if a player has won the game
+     * Copy the engine's board into the current player's view and note which slots changed
      */
-    public void checkForWin() {
-        boolean topRowEmpty = true, bottomRowEmpty = true;
-
-        // Check if the bottom row contains any stones
-        for (int i = 0; i < 6; ++i) {
-            if (pitStones[i] > 0) {
-                bottomRowEmpty = false;
-                break;
+    private void refreshView() {
+        int[] pits = engine.getPits();
+        int slots = pits.length;
+        int from = engine.getGeometry().offsetOf(currentPlayer);
+        for (int i = 0; i < slots; ++i) {
+            int stones = pits[from];
+            if (pitStones[i] != stones) {
+                pitStones[i] = stones;
+                changedSlots |= 1 << i;
             }
-        }
-
-        // Check if the top row contains any stones
-        for (int i = 7; i < 13; ++i) {
-            if (pitStones[i] > 0) {
-                topRowEmpty = false;
-                break;
+            if (++from == slots) {
+                from = 0;
             }
         }
+    }
 
+    /**
+     * Check if a player has won the game
+     */
+    public void checkForWin() {
         // Take the stones from the non-empty row and add them to that player's store
-        if (topRowEmpty || bottomRowEmpty) {
-            if (topRowEmpty && ! bottomRowEmpty) {
-                for (int i = 0; i < 6; ++i) {
-                    pitStones[6] += pitStones[i];
-                    pitStones[i] = 0;
-                }
-            } else if (! topRowEmpty && bottomRowEmpty) {
-                for (int i = 7; i < 13; ++i) {
-                    pitStones[13] += pitStones[i];
-                    pitStones[i] = 0;
-                }
-            }
-
-            // Determine which player holds the most stones
-            if (pitStones[6] > pitStones[13] ) {
-                winningPlayer = getCurrentPlayer();
-            } else if (pitStones[6] < pitStones[13]) {
-                winningPlayer = getOtherPlayer();
-            } else {
-                // tie
-                winningPlayer = 0;
-            }
+        int winner = engine.sweep();
+        refreshView();
 
+        if (winner >= 0) {
+            winningPlayer = winner;
         }
-
     }
 
     /**
@@ -190,6 +257,8 @@ public class Model {
      * @param pit the pit selected by the player
      */
     public void doPlayerTurn(int pit) {
+        // the move is timed up to telling the listeners
+        long start = GameMetrics.isEnabled() ? System.nanoTime() : 0;
     	switchTurnAvailable = false;
     	// perform the player's action
     	boolean	result = moveStones(pit);
@@ -201,6 +270,10 @@ public class Model {
         if ( ! result && winningPlayer < 0 ) {
             switchTurnAvailable = true;
         }
+        if (start != 0) {
+            GameMetrics.recordMove(System.nanoTime() - start);
+        }
+        notifyListeners(false);
     }
 
     /**
@@ -211,6 +284,7 @@ public class Model {
         if (switchTurnAvailable) {
             switchTurn();
             switchTurnAvailable = false;
+            notifyListeners(true);
             return true;
         }
         return false;
@@ -231,52 +305,24 @@ public class Model {
      * @return whether the user's turn is ended
      */
     protected boolean moveStones(final int pit) {
-        int pointer = pit;
-
-        // return if pit has no stones
-        if ( pitStones[pit] < 1 ) {
-            return true;
-        }
-
-        // take stones out of pit
-        int stones = pitStones[pit];
-        pitStones[pit] = 0;
-
-        while ( stones > 0 ) {
-            ++pointer;
-
-            // skip other player's storage pit and reset pointer
-            if (pointer == 13) {
-                pointer = 0;
-            } else {
-                pitStones[pointer]++;
-                stones--;
-            }
-
+        // translate the player-relative pit into the engine's fixed layout
+        int absolute = pit + engine.getGeometry().offsetOf(currentPlayer);
+        if (absolute >= pitStones.length) {
+            absolute -= pitStones.length;
         }
+        boolean result = engine.sow(currentPlayer, absolute);
+        refreshView();
 
-        // set to point to the opposite pit
-        int inversePointer = -pointer + 12;
-
-        // Check for capture
-        if (pointer < 6 && pitStones[pointer] == 1 && pitStones[inversePointer] > 0) {
-
-            // Transfer this stone along with opposite pit's stones to store
-            pitStones[6] += pitStones[inversePointer] + 1;
-
-            // Clear the pits
-            pitStones[pointer] = 0;
-            pitStones[inversePointer] = 0;
-        }
-
-        
         // return true if the turn ended in storage pit
-        return pointer == 6;
+        return result;
     }
 
     /**
-     * 
-     * @return
+     * Retrieve the stones laid out relative to the current player:
+     * their pits at 0-5 and store at 6, the opponent's pits at 7-12 and store at 13,
+     * or the same way for other sizes of board, as {@link BoardGeometry} describes.
+     * The array is updated in place on every move; other threads should use {@link #getSnapshot()}
+     * @return the current player's view of the board
      */
     public int[] getPitStones()
     {
@@ -288,9 +334,54 @@ public class Model {
         return winningPlayer;
     }
 
+    /**
+     * Replace the position on the board, e.g. with one decoded from a {@link PackedBoard}
+     * @param absolutePits stones per slot in the engine's absolute layout
+     * @param player the player to move, 1 or 2
+     */
+    public void setPosition(int[] absolutePits, int player)
+    {
+        System.arraycopy(absolutePits, 0, engine.getPits(), 0, pitStones.length);
+        currentPlayer = player;
+        winningPlayer = -1;
+        switchTurnAvailable = false;
+        refreshView();
+
+        changedSlots = ModelChangeEvent.ALL_SLOTS;
+        notifyListeners(true);
+    }
+
+    /**
+     * Retrieve the size of the board
+     * @return the geometry
+     */
+    public BoardGeometry getGeometry()
+    {
+        return engine.getGeometry();
+    }
+
+    /**
+     * Retrieve the rules the game is played under
+     * @return the variant
+     */
+    public RuleVariant getVariant()
+    {
+        return engine.getVariant();
+    }
+
+    /**
+     * Retrieve the engine holding the absolutely indexed board
+     * @return the move engine
+     */
+    public MoveEngine getEngine()
+    {
+        return engine;
+    }
+
     public void setWinningPlayer(int winner)
     {
         winningPlayer = winner;
+        publish();
     }
 
     /**
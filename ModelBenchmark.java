@@ -0,0 +1,285 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Micro-benchmarks for the hot operations of {@link Model}, run with 3 and 4
+ * stones per pit (the two options {@link MancalaStrategy} offers).
+ *
+ * Each benchmark is warmed up and then measured over several timed
+ * iterations. The harness prints operations per second with the spread
+ * between iterations, and the bytes allocated per operation on the
+ * measuring thread, so engine changes can be compared run to run. Boards
+ * other than the standard 6 pits a side are measured when their size is
+ * given, and so are other rules and sowing from the move tables
+ * ({@link MoveEngine#setTableSowing}) instead of stone by stone.
+ *
+ * JMH cannot be used here because it requires benchmarks in a named
+ * package, and code in a named package cannot reach the game classes,
+ * which are in the default package.
+ *
+ * Usage: java ModelBenchmark [iterationMillis] [iterations] [nameFilter] [pits per side] [rules] [loop|table]
+ * @author Ashton Headley
+ */
+public class ModelBenchmark {
+
+    /**
+     * Number of sampled mid-game positions the move benchmarks cycle through
+     */
+    private static final int POSITIONS = 4096;
+
+    /**
+     * Keeps results alive so the JIT cannot remove the benchmarked work
+     */
+    static volatile long sink;
+
+    /**
+     * One benchmarked operation
+     */
+    abstract static class Benchmark {
+        final String name;
+
+        Benchmark(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Run the operation a number of times
+         * @param ops how many operations to run
+         * @return a value derived from the results
+         */
+        abstract long run(int ops);
+    }
+
+    /**
+     * Run the benchmarks from the command line
+     * @param args optional iteration length, iteration count, a filter on benchmark names, the board size,
+     * the rules and how to sow
+     */
+    public static void main(String[] args) {
+        long iterationMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String filter = args.length > 2 ? args[2] : "";
+        BoardGeometry geometry = args.length > 3 ? BoardGeometry.of(Integer.parseInt(args[3])) : BoardGeometry.STANDARD;
+        RuleVariant variant = args.length > 4 ? RuleVariant.forName(args[4]) : RuleVariant.KALAH;
+        MoveEngine.setDefaultTableSowing(args.length > 5 && args[5].equals("table"));
+
+        System.out.printf("%-14s %6s %16s %12s %10s%n", "benchmark", "stones", "ops/s", "+-", "bytes/op");
+        for (int stones = 3; stones <= 4; ++stones) {
+            for (Benchmark benchmark : create(geometry, variant, stones)) {
+                if (benchmark.name.contains(filter)) {
+                    measure(benchmark, stones, iterationMillis, iterations);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the benchmarks for one board size, rules and starting stone count
+     * @param geometry the board size
+     * @param variant the rules
+     * @param stones stones per pit
+     * @return the benchmarks
+     */
+    static List<Benchmark> create(BoardGeometry geometry, RuleVariant variant, int stones) {
+        int[][] positions = new int[POSITIONS][];
+        int[] players = new int[POSITIONS];
+        int[] pits = new int[POSITIONS];
+        samplePositions(geometry, variant, stones, positions, players, pits);
+
+        Model initial = new Model(geometry, variant);
+        initial.setInitialStonesPerPit(stones);
+
+        List<Benchmark> list = new ArrayList<>();
+        list.add(new Benchmark("setPosition") {
+            final Model model = new Model(geometry, variant);
+
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; ++i) {
+                    int p = i & (POSITIONS - 1);
+                    model.setPosition(positions[p], players[p]);
+                    sum += model.getPitStones()[0];
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("moveStones") {
+            final Model model = new Model(geometry, variant);
+
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; ++i) {
+                    int p = i & (POSITIONS - 1);
+                    model.setPosition(positions[p], players[p]);
+                    sum += model.moveStones(pits[p]) ? 1 : 0;
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("checkForWin") {
+            final Model model = new Model(geometry, variant);
+
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; ++i) {
+                    int p = i & (POSITIONS - 1);
+                    model.setPosition(positions[p], players[p]);
+                    model.checkForWin();
+                    sum += model.getWinningPlayer();
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("switchTurn") {
+            final Model model = new Model(initial);
+
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; ++i) {
+                    model.switchTurn();
+                    sum += model.getCurrentPlayer();
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("copy") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; ++i) {
+                    sum += new Model(initial).getCurrentPlayer();
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("playout") {
+            final SplittableRandom random = new SplittableRandom(42);
+
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; ++i) {
+                    sum += playout(geometry, variant, stones, random);
+                }
+                return sum;
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Play one game of random moves
+     * @param geometry the board size
+     * @param variant the rules
+     * @param stones stones per pit
+     * @param random move source
+     * @return the winning player
+     */
+    static int playout(BoardGeometry geometry, RuleVariant variant, int stones, SplittableRandom random) {
+        Model model = new Model(geometry, variant);
+        model.setInitialStonesPerPit(stones);
+        while (model.getWinningPlayer() < 0) {
+            int[] view = model.getPitStones();
+            int pit;
+            do {
+                pit = random.nextInt(geometry.getPitsPerSide());
+            } while (view[pit] == 0);
+            model.doPlayerTurn(pit);
+            model.confirmTurn();
+        }
+        return model.getWinningPlayer();
+    }
+
+    /**
+     * Collect positions from random games, each with a legal pit to play
+     * @param stones stones per pit
+     * @param positions receives the absolute boards
+     * @param players receives the player to move
+     * @param pits receives a non-empty pit of the player to move
+     */
+    static void samplePositions(int stones, int[][] positions, int[] players, int[] pits) {
+        samplePositions(BoardGeometry.STANDARD, RuleVariant.KALAH, stones, positions, players, pits);
+    }
+
+    /**
+     * Collect positions from random games on a board of any size, under any rules
+     * @param geometry the board size
+     * @param variant the rules
+     * @param stones stones per pit
+     * @param positions receives the absolute boards
+     * @param players receives the player to move
+     * @param pits receives a non-empty pit of the player to move
+     */
+    static void samplePositions(BoardGeometry geometry, RuleVariant variant, int stones, int[][] positions, int[] players, int[] pits) {
+        SplittableRandom random = new SplittableRandom(stones);
+        int count = 0;
+        while (count < positions.length) {
+            Model model = new Model(geometry, variant);
+            model.setInitialStonesPerPit(stones);
+            while (model.getWinningPlayer() < 0 && count < positions.length) {
+                int[] view = model.getPitStones();
+                int pit;
+                do {
+                    pit = random.nextInt(geometry.getPitsPerSide());
+                } while (view[pit] == 0);
+
+                positions[count] = model.getEngine().getPits().clone();
+                players[count] = model.getCurrentPlayer();
+                pits[count] = pit;
+                count++;
+
+                model.doPlayerTurn(pit);
+                model.confirmTurn();
+            }
+        }
+    }
+
+    /**
+     * Warm up and measure one benchmark, then print its line
+     * @param benchmark the benchmark
+     * @param stones stones per pit, for the report
+     * @param iterationMillis length of one iteration
+     * @param iterations number of warm-up and of measured iterations
+     */
+    static void measure(Benchmark benchmark, int stones, long iterationMillis, int iterations) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double[] rates = new double[iterations];
+        long totalOps = 0, totalBytes = 0;
+
+        for (int round = 0; round < iterations * 2; ++round) {
+            long ops = 0;
+            int batch = 1024;
+            long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long end = start + iterationMillis * 1_000_000L;
+            long now;
+            do {
+                sink += benchmark.run(batch);
+                ops += batch;
+                now = System.nanoTime();
+            } while (now < end);
+            long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+            // the first half of the rounds is warm-up
+            if (round >= iterations) {
+                rates[round - iterations] = ops * 1e9 / (now - start);
+                totalOps += ops;
+                totalBytes += bytes;
+            }
+        }
+
+        double mean = 0;
+        for (double rate : rates) {
+            mean += rate;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - mean) * (rate - mean);
+        }
+        double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+        System.out.printf("%-14s %6d %16.0f %12.0f %10.1f%n", benchmark.name, stones, mean, error,
+                (double) totalBytes / totalOps);
+    }
+}
@@ -0,0 +1,66 @@
+import javax.swing.event.ChangeEvent;
+
+/**
+ * Describes what changed in a {@link Model}, so views can redraw only the
+ * affected parts of the board
+ * @author Ashton Headley
+ */
+@SuppressWarnings("serial")
+public class ModelChangeEvent extends ChangeEvent {
+
+    /**
+     * Every slot of the board, of any size
+     */
+    public static final int ALL_SLOTS = (1 << BoardGeometry.MAX_SLOTS) - 1;
+
+    private final int changedSlots;
+    private final boolean turnSwitched;
+    private final boolean gameOver;
+
+    /**
+     * Initialize the class
+     * @param source the model
+     * @param changedSlots bit i is set when slot i of the current player's view changed
+     * @param turnSwitched whether the other player is now to move
+     * @param gameOver whether the game has ended
+     */
+    public ModelChangeEvent(Model source, int changedSlots, boolean turnSwitched, boolean gameOver) {
+        super(source);
+        this.changedSlots = changedSlots;
+        this.turnSwitched = turnSwitched;
+        this.gameOver = gameOver;
+    }
+
+    /**
+     * Get the slots that changed, as laid out in {@link Model#getPitStones()}
+     * @return bit i is set when slot i changed
+     */
+    public int getChangedSlots() {
+        return changedSlots;
+    }
+
+    /**
+     * Whether a slot changed
+     * @param slot index in the current player's view
+     * @return true if its stone count changed
+     */
+    public boolean isSlotChanged(int slot) {
+        return (changedSlots & (1 << slot)) != 0;
+    }
+
+    /**
+     * Whether the other player is now to move, which changes the whole board
+     * @return true if the turn switched
+     */
+    public boolean isTurnSwitched() {
+        return turnSwitched;
+    }
+
+    /**
+     * Whether the game has ended
+     * @return true if there is a winner or a tie
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Measures {@link MonteCarloSearch}: playouts per second from the starting
+ * position with 1, 2, 4... threads for each rollout policy, the memory the
+ * tree takes per node, and how it plays against {@link GreedyPlayer} with
+ * its tree kept between moves.
+ *
+ * Usage: java MonteCarloBenchmark [millis per search] [maxThreads] [games] [stones]
+ * @author Ashton Headley
+ */
+public class MonteCarloBenchmark {
+
+    /**
+     * Run the measurements from the command line
+     * @param args optional search time, thread limit, number of games and stones per pit
+     */
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int stones = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        long[] start = new long[2];
+        PackedBoard.initial(stones, start);
+
+        int nodes = 20_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        MonteCarloSearch warmup = new MonteCarloSearch(1, millis, nodes, 1);
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("tree of %,d nodes: %.1f bytes per node (%d stored)%n", nodes,
+                (after - before) / (double) nodes, MonteCarloSearch.BYTES_PER_NODE);
+        warmup.search(start[0], start[1]);
+        warmup.close();
+
+        System.out.println("rollout  threads  playouts/s  tree nodes  depth  best  win%");
+        for (String policy : new String[] {"random", "greedy"}) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                try (MonteCarloSearch search = new MonteCarloSearch(threads, millis, nodes, 1)) {
+                    search.setRollout(policy.equals("random") ? MonteCarloSearch.RANDOM : MonteCarloSearch.GREEDY);
+                    SearchResult result = search.search(start[0], start[1]);
+                    System.out.printf("%-7s  %7d  %10d  %10d  %5d  %4d  %4d%n", policy, threads,
+                            result.getNodesPerSecond(), search.getSize(), result.depth, result.pit, result.score);
+                }
+            }
+        }
+
+        // play both sides against the greedy player, with a tenth of the time per move
+        int wins = 0, draws = 0;
+        long kept = 0, searches = 0;
+        for (int game = 0; game < games; ++game) {
+            int side = 1 + game % 2;
+            MonteCarloPlayer mcts = new MonteCarloPlayer(side, Math.max(1, millis / 10), maxThreads, 4_000_000, game);
+            MancalaPlayer greedy = new GreedyPlayer();
+            Model model = new Model();
+            model.setInitialStonesPerPit(stones);
+            while (model.getWinningPlayer() < 0) {
+                if (model.getCurrentPlayer() == side) {
+                    kept += mcts.getSearch().getRootVisits() > 0 ? 1 : 0;
+                    searches++;
+                    model.doPlayerTurn(mcts.chooseMove(model));
+                } else {
+                    model.doPlayerTurn(greedy.chooseMove(model));
+                }
+                model.confirmTurn();
+            }
+            if (model.getWinningPlayer() == side) {
+                wins++;
+            } else if (model.getWinningPlayer() == 0) {
+                draws++;
+            }
+            mcts.getSearch().close();
+        }
+        System.out.printf("against greedy: %d wins, %d draws, %d losses in %d games; tree reused for %d of %d moves%n",
+                wins, draws, games - wins - draws, games, kept, searches);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * A computer opponent that picks its moves with {@link MonteCarloSearch},
+ * keeping its search tree from one move to the next
+ * @author Ashton Headley
+ */
+public class MonteCarloPlayer implements MancalaPlayer {
+
+    /**
+     * Default most nodes of the search tree, about 56 MB
+     */
+    public static final int DEFAULT_NODES = 4_000_000;
+
+    private final int player;
+    private final MonteCarloSearch search;
+    private SearchResult lastResult;
+
+    /**
+     * Initialize the class with one search thread
+     * @param player the side the computer plays, 1 or 2
+     * @param budgetMillis time allowed per move
+     */
+    public MonteCarloPlayer(int player, long budgetMillis) {
+        this(player, budgetMillis, 1, DEFAULT_NODES, player);
+    }
+
+    /**
+     * Initialize the class
+     * @param player the side the computer plays, 1 or 2
+     * @param budgetMillis time allowed per move
+     * @param threads number of search threads, e.g. the number of cores
+     * @param nodes most nodes of the search tree
+     * @param seed random seed of the playouts
+     */
+    public MonteCarloPlayer(int player, long budgetMillis, int threads, int nodes, long seed) {
+        this.player = player;
+        this.search = new MonteCarloSearch(threads, budgetMillis, nodes, seed);
+    }
+
+    /**
+     * Choose a pit for the player to move
+     * @param model the game, which is not modified
+     * @return pit 0-5 relative to the player to move, or -1 if there is no legal move
+     */
+    @Override
+    public int chooseMove(Model model) {
+        lastResult = search.search(model);
+        GameMetrics.recordSearch(lastResult);
+        return lastResult.pit;
+    }
+
+    /**
+     * Get the search, to change its settings
+     * @return the search
+     */
+    public MonteCarloSearch getSearch() {
+        return search;
+    }
+
+    /**
+     * Retrieve the side the computer plays
+     * @return 1 or 2
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Retrieve the statistics of the last search
+     * @return the last search outcome, or null before the first move
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+}
@@ -0,0 +1,533 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monte Carlo tree search with UCT selection, played on {@link PackedBoard}
+ * positions, which follow the rules of {@link Model#moveStones(int)} and
+ * {@link Model#checkForWin()}.
+ *
+ * The tree lives in a few primitive arrays indexed by node instead of one
+ * object per node: the children of a node are a contiguous block, and a
+ * node keeps only its move, visits, score and first child, 14 bytes in
+ * all. Positions are not stored; each descent replays the moves from the
+ * root, which costs far less than the playout that follows it.
+ *
+ * Several threads search the same tree (tree parallelism). A thread counts
+ * its visit to every node on its way down and only adds the result on the
+ * way back, so until then the visit looks like a loss to the other threads
+ * and steers them to other branches (virtual loss).
+ *
+ * Between moves the tree is kept: {@link #search(long, long)} looks for the
+ * new position among the nodes near the old root and, when it is found,
+ * moves its subtree to the front of the arrays and continues from it.
+ * @author Ashton Headley
+ */
+public class MonteCarloSearch implements AutoCloseable {
+
+    /**
+     * Bytes of storage per node
+     */
+    public static final int BYTES_PER_NODE = 14;
+
+    /**
+     * Default exploration constant of the UCT formula
+     */
+    public static final double DEFAULT_EXPLORATION = 1.0;
+
+    /**
+     * Deepest descent from the root; moves below it are left to the playout
+     */
+    private static final int MAX_PATH = 512;
+
+    /**
+     * Plies below the old root searched for the new position
+     */
+    private static final int REUSE_DEPTH = 8;
+
+    // first child values of a node without children
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * Chooses the moves of a playout
+     */
+    public interface Rollout {
+
+        /**
+         * Choose a legal pit for the player to move in a game that is not over
+         * @param hi player 2's side
+         * @param lo player 1's side
+         * @param random random source of the calling thread
+         * @return pit 0-5 relative to the player to move
+         */
+        int choose(long hi, long lo, SplittableRandom random);
+    }
+
+    /**
+     * Plays a uniformly random non-empty pit
+     */
+    public static final Rollout RANDOM = (hi, lo, random) -> {
+        int pit;
+        do {
+            pit = random.nextInt(MoveEngine.PITS_PER_SIDE);
+        } while (!PackedBoard.isLegal(hi, lo, pit));
+        return pit;
+    };
+
+    /**
+     * Takes an extra turn when it can, otherwise the biggest capture,
+     * otherwise a random pit
+     */
+    public static final Rollout GREEDY = (hi, lo, random) -> {
+        int offset = MoveEngine.offsetOf(PackedBoard.sideToMove(hi));
+        int best = -1, bestCapture = 0;
+        for (int pit = MoveEngine.PITS_PER_SIDE - 1; pit >= 0; --pit) {
+            int stones = PackedBoard.get(hi, lo, pit + offset);
+            if (stones > 0 && stones % MoveEngine.CYCLE == MoveEngine.PITS_PER_SIDE - pit) {
+                return pit;
+            }
+            int capture = PackedBoard.captureSize(hi, lo, pit);
+            if (capture > bestCapture) {
+                bestCapture = capture;
+                best = pit;
+            }
+        }
+        return best >= 0 ? best : RANDOM.choose(hi, lo, random);
+    };
+
+    // the tree; children of a node are first[node] .. first[node] + count[node] - 1
+    private final int capacity;
+    private final int[] first;
+    private final int[] visits;
+    private final int[] score;     // half points won by the player who made the move into the node
+    private final byte[] pit;      // move into the node, relative to the player who made it
+    private final byte[] count;
+    private final AtomicInteger size = new AtomicInteger();
+    private int root = -1;
+    private long rootHi, rootLo;
+
+    private final int threads;
+    private final ExecutorService helpers;
+    private final Future<?>[] running;
+    private final SplittableRandom seeds;
+    private Rollout rollout = RANDOM;
+    private double exploration = DEFAULT_EXPLORATION;
+    private long budgetMillis;
+    private long playoutLimit = Long.MAX_VALUE;
+
+    private volatile boolean stop;
+    private final AtomicInteger deepest = new AtomicInteger();
+    private final long[] playouts;
+
+    /**
+     * Initialize the class
+     * @param threads number of searching threads including the caller's
+     * @param budgetMillis wall-clock time allowed per move
+     * @param nodes most nodes the tree may hold
+     * @param seed random seed of the playouts
+     */
+    public MonteCarloSearch(int threads, long budgetMillis, int nodes, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        this.budgetMillis = budgetMillis;
+        capacity = nodes;
+        first = new int[nodes];
+        visits = new int[nodes];
+        score = new int[nodes];
+        pit = new byte[nodes];
+        count = new byte[nodes];
+        seeds = new SplittableRandom(seed);
+        helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread thread = new Thread(r, "mcts-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        running = new Future<?>[threads];
+        playouts = new long[threads];
+    }
+
+    /**
+     * Choose how playouts pick their moves
+     * @param rollout {@link #RANDOM}, {@link #GREEDY} or another policy
+     */
+    public void setRollout(Rollout rollout) {
+        this.rollout = rollout;
+    }
+
+    /**
+     * Set the exploration constant of the UCT formula
+     * @param exploration larger values try weaker moves more often
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * Set the wall-clock time allowed per move
+     * @param budgetMillis milliseconds
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Stop each search after a number of playouts, whatever the time
+     * @param playoutLimit playouts per search, or Long.MAX_VALUE for no limit
+     */
+    public void setPlayoutLimit(long playoutLimit) {
+        this.playoutLimit = playoutLimit;
+    }
+
+    /**
+     * Find the best move for the player to move in a model
+     * @param model the game
+     * @return the best move, with the number of playouts as its node count
+     */
+    public SearchResult search(Model model) {
+        long[] state = new long[2];
+        PackedBoard.fromModel(model, state);
+        return search(state[0], state[1]);
+    }
+
+    /**
+     * Find the best move for the player to move. The score is the chance
+     * of winning with it, in percent, with draws counted as half a win.
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return the most visited move, with the number of playouts as its node count
+     */
+    public SearchResult search(long hi, long lo) {
+        long start = System.nanoTime();
+        if (PackedBoard.isGameOver(hi, lo)) {
+            return new SearchResult(-1, 0, 0, 0, System.nanoTime() - start);
+        }
+        reuse(hi, lo);
+
+        stop = false;
+        deepest.set(0);
+        long deadline = start + budgetMillis * 1_000_000L;
+        long limit = Math.max(1, playoutLimit / threads);
+        for (int i = 1; i < threads; ++i) {
+            final int id = i;
+            final SplittableRandom random = seeds.split();
+            running[i] = helpers.submit(() -> {
+                playouts[id] = work(random, deadline, limit);
+            });
+        }
+        playouts[0] = work(seeds.split(), deadline, limit);
+        stop = true;
+
+        long total = playouts[0];
+        for (int i = 1; i < threads; ++i) {
+            try {
+                running[i].get();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            total += playouts[i];
+        }
+
+        // the most visited move is the one the search trusts most
+        int best = -1;
+        int from = first[root];
+        for (int c = from; c >= 0 && c < from + count[root]; ++c) {
+            if (best < 0 || visits[c] > visits[best]) {
+                best = c;
+            }
+        }
+        if (best < 0) {
+            return new SearchResult(-1, 0, 0, total, System.nanoTime() - start);
+        }
+        int percent = visits[best] > 0 ? (int) (50L * score[best] / visits[best]) : 0;
+        return new SearchResult(pit[best], percent, deepest.get(), total, System.nanoTime() - start);
+    }
+
+    /**
+     * Get the number of nodes in use
+     * @return nodes in the tree, including ones no longer under the root
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Get the most nodes the tree may hold
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of visits of the root
+     * @return playouts below the current root, including those kept from earlier moves
+     */
+    public int getRootVisits() {
+        return root >= 0 ? visits[root] : 0;
+    }
+
+    /**
+     * Get the number of searching threads
+     * @return thread count including the caller's
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Forget the tree
+     */
+    public void clear() {
+        root = -1;
+        size.set(0);
+    }
+
+    /**
+     * Stop the helper threads
+     */
+    @Override
+    public void close() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    /**
+     * Make a position the root, keeping its subtree if it is already in the tree
+     * @param hi player 2's side
+     * @param lo player 1's side
+     */
+    private void reuse(long hi, long lo) {
+        int found = root >= 0 ? find(root, rootHi, rootLo, hi, lo, REUSE_DEPTH) : -1;
+        if (found < 0) {
+            size.set(1);
+            root = 0;
+            first[0] = UNEXPANDED;
+            visits[0] = 0;
+            score[0] = 0;
+            count[0] = 0;
+        } else {
+            root = compact(found);
+        }
+        rootHi = hi;
+        rootLo = lo;
+    }
+
+    /**
+     * Look for a position among the expanded nodes below a node
+     * @return the node, or -1
+     */
+    private int find(int node, long hi, long lo, long targetHi, long targetLo, int depth) {
+        if (hi == targetHi && lo == targetLo) {
+            return node;
+        }
+        int from = first[node];
+        if (depth == 0 || from < 0) {
+            return -1;
+        }
+        long[] child = new long[2];
+        for (int c = from; c < from + count[node]; ++c) {
+            PackedBoard.applyMove(hi, lo, pit[c], child);
+            int found = find(c, child[0], child[1], targetHi, targetLo, depth - 1);
+            if (found >= 0) {
+                return found;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Move the subtree of a node to the front of the arrays, dropping the
+     * rest. A child block always comes after its parent, so keeping the
+     * live nodes in their order only ever moves a node down, over a node
+     * that is dead or already moved, and keeps every block contiguous.
+     * @param top the new root
+     * @return the new index of the root, 0
+     */
+    private int compact(int top) {
+        int used = size.get();
+        int[] index = new int[used];
+        Arrays.fill(index, -1);
+
+        // mark the live nodes
+        int[] stack = new int[MAX_PATH * MoveEngine.PITS_PER_SIDE + 1];
+        int depth = 0;
+        stack[depth++] = top;
+        index[top] = 0;
+        while (depth > 0) {
+            int node = stack[--depth];
+            int from = first[node];
+            for (int c = from; c >= 0 && c < from + count[node]; ++c) {
+                index[c] = 0;
+                if (first[c] >= 0) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = c;
+                }
+            }
+        }
+
+        // number them in order, then move them
+        int next = 0;
+        for (int node = 0; node < used; ++node) {
+            if (index[node] == 0) {
+                index[node] = next++;
+            }
+        }
+        for (int node = top; node < used; ++node) {
+            int to = index[node];
+            if (to < 0) {
+                continue;
+            }
+            first[to] = first[node] >= 0 ? index[first[node]] : UNEXPANDED;
+            visits[to] = visits[node];
+            score[to] = score[node];
+            pit[to] = pit[node];
+            count[to] = count[node];
+        }
+        size.set(next);
+        return 0;
+    }
+
+    /**
+     * Run descents and playouts until the deadline, the limit or a stop
+     * @return playouts run
+     */
+    private long work(SplittableRandom random, long deadline, long limit) {
+        int[] path = new int[MAX_PATH + 1];
+        int[] movers = new int[MAX_PATH + 1];
+        long[] state = new long[2];
+        long done = 0;
+        while (!stop && done < limit) {
+            iterate(random, path, movers, state);
+            ++done;
+            if ((done & 63) == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        stop = true;
+        return done;
+    }
+
+    /**
+     * One descent from the root to a leaf, a playout from there, and the
+     * result added along the path
+     */
+    private void iterate(SplittableRandom random, int[] path, int[] movers, long[] state) {
+        long hi = rootHi, lo = rootLo;
+        int node = root;
+        int depth = 0;
+        path[0] = node;
+        INTS.getAndAdd(visits, node, 1);
+
+        while (depth < MAX_PATH && !PackedBoard.isGameOver(hi, lo)) {
+            int from = (int) INTS.getAcquire(first, node);
+            if (from == UNEXPANDED && INTS.compareAndSet(first, node, UNEXPANDED, EXPANDING)) {
+                from = expand(node, hi, lo);
+            }
+            if (from < 0) {
+                // a leaf, or another thread is expanding it, or the tree is full
+                break;
+            }
+            int child = select(node, from);
+            movers[depth] = PackedBoard.sideToMove(hi);
+            PackedBoard.applyMove(hi, lo, pit[child], state);
+            hi = state[0];
+            lo = state[1];
+            node = child;
+            path[++depth] = node;
+            if ((int) INTS.getAndAdd(visits, node, 1) == 0) {
+                // a new node: play out from it
+                break;
+            }
+        }
+        int max = deepest.get();
+        if (depth > max) {
+            deepest.compareAndSet(max, depth);
+        }
+
+        while (!PackedBoard.isGameOver(hi, lo)) {
+            PackedBoard.applyMove(hi, lo, rollout.choose(hi, lo, random), state);
+            hi = state[0];
+            lo = state[1];
+        }
+        int winner = PackedBoard.winner(hi, lo);
+
+        // the visits were counted on the way down; now add the points
+        for (int i = 1; i <= depth; ++i) {
+            int points = winner == 0 ? 1 : winner == movers[i - 1] ? 2 : 0;
+            if (points > 0) {
+                INTS.getAndAdd(score, path[i], points);
+            }
+        }
+    }
+
+    /**
+     * Give a node one child per legal move
+     * @return the first child, or -1 if the tree is full
+     */
+    private int expand(int node, long hi, long lo) {
+        int legal = 0;
+        for (int p = 0; p < MoveEngine.PITS_PER_SIDE; ++p) {
+            if (PackedBoard.isLegal(hi, lo, p)) {
+                legal++;
+            }
+        }
+        int from;
+        do {
+            from = size.get();
+            if (from + legal > capacity) {
+                // full: the node stays a leaf until the tree is next compacted
+                return -1;
+            }
+        } while (!size.compareAndSet(from, from + legal));
+        int c = from;
+        for (int p = 0; p < MoveEngine.PITS_PER_SIDE; ++p) {
+            if (PackedBoard.isLegal(hi, lo, p)) {
+                first[c] = UNEXPANDED;
+                visits[c] = 0;
+                score[c] = 0;
+                count[c] = 0;
+                pit[c] = (byte) p;
+                c++;
+            }
+        }
+        count[node] = (byte) legal;
+        INTS.setRelease(first, node, from);
+        return from;
+    }
+
+    /**
+     * Pick the child with the best upper confidence bound; children not
+     * yet visited come first
+     */
+    private int select(int node, int from) {
+        int to = from + count[node];
+        double logParent = Math.log(Math.max(1, visits[node]));
+        int best = from;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = from; c < to; ++c) {
+            int n = visits[c];
+            if (n == 0) {
+                return c;
+            }
+            double value = score[c] / (2.0 * n) + exploration * Math.sqrt(logParent / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
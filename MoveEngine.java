@@ -0,0 +1,602 @@
+import java.util.Arrays;
+
+/**
+ * Applies the rules of the game on a board with fixed pit positions for each player.
+ *
+ * Player 1 always owns pits 0-5 and the store at 6, player 2 always owns
+ * pits 7-12 and the store at 13, so a turn change never has to move stones
+ * around. Sowing is computed arithmetically: every slot except the
+ * opponent's store gets stones / 13 stones, and the remainder is dealt out
+ * to the slots following the chosen pit.
+ *
+ * Boards of other sizes are laid out the same way, as {@link BoardGeometry}
+ * describes; the constants and static methods here are those of the
+ * standard board. The rules are Kalah's unless another {@link RuleVariant}
+ * is given. Sowing on the standard board under Kalah rules has its own copy
+ * of the code written with the constants, so the JIT can fold them in and
+ * it is as fast as before other sizes and rules existed; every other
+ * combination sows from the variant's {@link RuleVariant.MoveTable}.
+ *
+ * Any board can instead be sown entirely from the table's precomputed
+ * stones per slot, a few additions over the whole board and one table
+ * read, with {@link #setTableSowing}, so the two ways can be compared on
+ * the same games. Both record captures the same way, so a game may switch
+ * between them and still be undone.
+ * @author Ashton Headley
+ */
+public class MoveEngine {
+
+    /**
+     * Number of pits on each side of the board
+     */
+    public static final int PITS_PER_SIDE = 6;
+
+    /**
+     * Total number of slots on the board, pits and stores
+     */
+    public static final int SLOTS = 14;
+
+    /**
+     * Number of slots a player sows into (everything but the opponent's store)
+     */
+    public static final int CYCLE = SLOTS - 1;
+
+    /**
+     * Absolute index of player 1's store
+     */
+    public static final int STORE_ONE = 6;
+
+    /**
+     * Absolute index of player 2's store
+     */
+    public static final int STORE_TWO = 13;
+
+    /**
+     * Stones in each slot, indexed absolutely
+     */
+    private final int[] pits;
+
+    /**
+     * The compiled moves of the board size and rules, which also hold them
+     */
+    private final RuleVariant.MoveTable table;
+
+    /**
+     * Whether this is the standard board under Kalah rules
+     */
+    private final boolean standard;
+
+    /**
+     * Whether moves are sown from the table's stones per slot instead of stone by stone
+     */
+    private boolean tableSowing = defaultTableSowing;
+
+    /**
+     * {@link #tableSowing} of new engines that are not copies
+     */
+    private static volatile boolean defaultTableSowing;
+
+    /**
+     * Capture made by the last sow, or 0 if there was none. On the
+     * standard board under Kalah rules, the landing pit in bits 8-12 and
+     * the stones taken from the opposite pit in bits 0-7; otherwise in the
+     * variant's own form.
+     */
+    private int lastCapture;
+
+    /**
+     * Row moved into a store by the last sweep: stones of pit i of the
+     * row in bits 7i to 7i+6 and the row's owner in bits 56-57, or 0 if
+     * nothing was swept
+     */
+    private long lastSweep;
+
+    /**
+     * Stones of one pit in {@link #getLastSweep}
+     */
+    private static final int SWEEP_BITS = 7;
+
+    /**
+     * Position of the owner in {@link #getLastSweep}
+     */
+    private static final int SWEEP_OWNER_SHIFT = 56;
+
+    /**
+     * Initialize an empty standard board
+     */
+    public MoveEngine() {
+        this(BoardGeometry.STANDARD);
+    }
+
+    /**
+     * Initialize an empty board played under Kalah rules
+     * @param geometry the size of the board
+     */
+    public MoveEngine(BoardGeometry geometry) {
+        this(geometry, RuleVariant.KALAH);
+    }
+
+    /**
+     * Initialize an empty board
+     * @param geometry the size of the board
+     * @param variant the rules
+     */
+    public MoveEngine(BoardGeometry geometry, RuleVariant variant) {
+        table = variant.getTable(geometry);
+        standard = geometry.isStandard() && variant == RuleVariant.KALAH;
+        pits = new int[geometry.getSlots()];
+    }
+
+    /**
+     * Copy constructor
+     * @param other - object, from which we deep-copy values
+     */
+    public MoveEngine(MoveEngine other) {
+        table = other.table;
+        standard = other.standard;
+        tableSowing = other.tableSowing;
+        pits = Arrays.copyOf(other.pits, other.pits.length);
+    }
+
+    /**
+     * Choose how boards made from now on sow, unless they are copies,
+     * which sow like the board they copy
+     * @param on true to sow from the table's stones per slot, false stone by stone
+     */
+    public static void setDefaultTableSowing(boolean on) {
+        defaultTableSowing = on;
+    }
+
+    /**
+     * Whether boards made from now on sow from the table
+     * @return true if new boards sow from the table's stones per slot
+     */
+    public static boolean isDefaultTableSowing() {
+        return defaultTableSowing;
+    }
+
+    /**
+     * Choose how this board sows from its next move on
+     * @param on true to sow from the table's stones per slot, false stone by stone
+     */
+    public void setTableSowing(boolean on) {
+        tableSowing = on;
+    }
+
+    /**
+     * Whether this board sows from the table
+     * @return true if moves are sown from the table's stones per slot
+     */
+    public boolean isTableSowing() {
+        return tableSowing;
+    }
+
+    /**
+     * Fill every pit with the same number of stones and empty both stores
+     * @param stones stones per pit
+     */
+    public void reset(int stones) {
+        Arrays.fill(pits, stones);
+        pits[table.getGeometry().getStoreOne()] = 0;
+        pits[table.getGeometry().getStoreTwo()] = 0;
+    }
+
+    /**
+     * Get the size of the board
+     * @return the geometry
+     */
+    public BoardGeometry getGeometry() {
+        return table.getGeometry();
+    }
+
+    /**
+     * Get the rules the board is played under
+     * @return the variant
+     */
+    public RuleVariant getVariant() {
+        return table.getVariant();
+    }
+
+    /**
+     * Whether this is the standard board under Kalah rules, the game that
+     * {@link PackedBoard} and everything built on it describe
+     * @return true for 6 pits a side and {@link RuleVariant#KALAH}
+     */
+    public boolean isStandard() {
+        return standard;
+    }
+
+    /**
+     * Get the absolute index of a player's store
+     * @param player 1 or 2
+     * @return store index
+     */
+    public static int storeOf(int player) {
+        return player == 1 ? STORE_ONE : STORE_TWO;
+    }
+
+    /**
+     * Get the absolute index of a player's first pit
+     * @param player 1 or 2
+     * @return index of the player's pit 0
+     */
+    public static int offsetOf(int player) {
+        return player == 1 ? 0 : STORE_ONE + 1;
+    }
+
+    /**
+     * Get the pit across the board from a pit
+     * @param pit absolute pit index, not a store
+     * @return absolute index of the opposite pit
+     */
+    public static int opposite(int pit) {
+        return 12 - pit;
+    }
+
+    /**
+     * Sow the stones of a pit for a player
+     * @param player the player making the move, 1 or 2
+     * @param pit absolute index of the chosen pit
+     * @return whether the player gets another move, i.e. the last stone
+     * landed in their store, or the pit was empty
+     */
+    public boolean sow(int player, int pit) {
+        if (tableSowing) {
+            return sowTable(player, pit);
+        }
+        if (standard) {
+            return sowStandard(player, pit);
+        }
+        int stones = pits[pit];
+        lastCapture = 0;
+
+        // return if pit has no stones
+        if (stones < 1) {
+            return true;
+        }
+        pits[pit] = 0;
+
+        // every slot but the opponent's store gets one stone per full lap
+        int cycle = table.getCycle();
+        int laps = stones / cycle;
+        if (laps > 0) {
+            for (int i = 0; i < pits.length; ++i) {
+                pits[i] += laps;
+            }
+            pits[table.getGeometry().storeOf(3 - player)] -= laps;
+        }
+
+        // deal out the remaining stones after the chosen pit
+        int[] next = table.getNext(player);
+        int pointer = pit;
+        for (int i = stones - laps * cycle; i > 0; --i) {
+            pointer = next[pointer];
+            pits[pointer]++;
+        }
+
+        int move = table.getMove(player, pit - table.getGeometry().offsetOf(player), stones);
+        if ((move & RuleVariant.MoveTable.CAPTURE) != 0) {
+            lastCapture = table.getVariant().capture(pits, table.getGeometry(), player,
+                    move & RuleVariant.MoveTable.LANDING_MASK);
+        }
+        return (move & RuleVariant.MoveTable.EXTRA_TURN) != 0;
+    }
+
+    /**
+     * {@link #sow} with every slot's stones from the table
+     */
+    private boolean sowTable(int player, int pit) {
+        int stones = pits[pit];
+        lastCapture = 0;
+
+        // return if pit has no stones
+        if (stones < 1) {
+            return true;
+        }
+        pits[pit] = 0;
+
+        int cycle = table.getCycle();
+        int laps = stones / cycle;
+        int move = (pit - table.getGeometry().offsetOf(player)) * cycle + stones - laps * cycle;
+        int[] lap = table.getLap(player);
+        int[] deal = table.getDeals(player);
+        int from = move * pits.length;
+        for (int i = 0; i < pits.length; ++i) {
+            pits[i] += laps * lap[i] + deal[from + i];
+        }
+
+        int entry = table.getMoves(player)[move];
+        if ((entry & RuleVariant.MoveTable.CAPTURE) != 0) {
+            lastCapture = table.getVariant().capture(pits, table.getGeometry(), player,
+                    entry & RuleVariant.MoveTable.LANDING_MASK);
+        }
+        return (entry & RuleVariant.MoveTable.EXTRA_TURN) != 0;
+    }
+
+    /**
+     * {@link #sow} on the standard board, with its sizes as constants
+     */
+    private boolean sowStandard(int player, int pit) {
+        int stones = pits[pit];
+        lastCapture = 0;
+
+        // return if pit has no stones
+        if (stones < 1) {
+            return true;
+        }
+        pits[pit] = 0;
+
+        int skip = player == 1 ? STORE_TWO : STORE_ONE;
+        int laps = stones / CYCLE;
+        int remainder = stones % CYCLE;
+
+        // every slot but the opponent's store gets one stone per full lap
+        if (laps > 0) {
+            for (int i = 0; i < SLOTS; ++i) {
+                pits[i] += laps;
+            }
+            pits[skip] -= laps;
+        }
+
+        // deal out the remaining stones after the chosen pit
+        int pointer = pit;
+        for (int i = 0; i < remainder; ++i) {
+            ++pointer;
+            if (pointer == SLOTS) {
+                pointer = 0;
+            }
+            if (pointer == skip) {
+                ++pointer;
+                if (pointer == SLOTS) {
+                    pointer = 0;
+                }
+            }
+            pits[pointer]++;
+        }
+
+        int store = storeOf(player);
+        int offset = offsetOf(player);
+
+        // Check for capture on the player's own side
+        if (pointer >= offset && pointer < offset + PITS_PER_SIDE && pits[pointer] == 1) {
+            int inverse = opposite(pointer);
+            if (pits[inverse] > 0) {
+                lastCapture = pointer << 8 | pits[inverse];
+                pits[store] += pits[inverse] + 1;
+                pits[pointer] = 0;
+                pits[inverse] = 0;
+            }
+        }
+
+        return pointer == store;
+    }
+
+    /**
+     * Check whether either row is empty and, if so, sweep the other row into
+     * its owner's store, unless the rules leave it on the board
+     * @return -1 if the game continues, 0 for a tie, otherwise the winning player
+     */
+    public int sweep() {
+        boolean oneEmpty = rowEmpty(1);
+        boolean twoEmpty = rowEmpty(2);
+        lastSweep = 0;
+
+        if (!oneEmpty && !twoEmpty) {
+            return -1;
+        }
+        if (!table.getVariant().sweepsAtEnd()) {
+            // the stones left count for no one
+        } else if (oneEmpty && !twoEmpty) {
+            collect(2);
+        } else if (!oneEmpty) {
+            collect(1);
+        }
+
+        BoardGeometry geometry = table.getGeometry();
+        int one = pits[geometry.getStoreOne()], two = pits[geometry.getStoreTwo()];
+        if (one > two) {
+            return 1;
+        } else if (one < two) {
+            return 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Check whether a player has no stones left in their pits
+     * @param player 1 or 2
+     * @return true if all of the player's pits are empty
+     */
+    public boolean rowEmpty(int player) {
+        int pitsPerSide = (pits.length >> 1) - 1;
+        int offset = player == 1 ? 0 : pitsPerSide + 1;
+        for (int i = offset; i < offset + pitsPerSide; ++i) {
+            if (pits[i] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Move every stone in a player's pits into their store
+     * @param player 1 or 2
+     */
+    private void collect(int player) {
+        BoardGeometry geometry = table.getGeometry();
+        int offset = geometry.offsetOf(player);
+        int store = geometry.storeOf(player);
+        long swept = (long) player << SWEEP_OWNER_SHIFT;
+        for (int i = offset; i < offset + geometry.getPitsPerSide(); ++i) {
+            swept |= (long) pits[i] << ((i - offset) * SWEEP_BITS);
+            pits[store] += pits[i];
+            pits[i] = 0;
+        }
+        lastSweep = swept;
+    }
+
+    /**
+     * Take back a move made with {@link #sow}
+     * @param player the player who made the move
+     * @param pit absolute index of the chosen pit
+     * @param stones stones the pit held before the move
+     * @param capture the capture the move made, from {@link #getLastCapture}
+     */
+    public void unsow(int player, int pit, int stones, int capture) {
+        if (tableSowing) {
+            unsowTable(player, pit, stones, capture);
+            return;
+        }
+        if (standard) {
+            unsowStandard(player, pit, stones, capture);
+            return;
+        }
+        if (stones < 1) {
+            return;
+        }
+        if (capture != 0) {
+            table.getVariant().uncapture(pits, table.getGeometry(), player, capture);
+        }
+
+        int cycle = table.getCycle();
+        int laps = stones / cycle;
+        if (laps > 0) {
+            for (int i = 0; i < pits.length; ++i) {
+                pits[i] -= laps;
+            }
+            pits[table.getGeometry().storeOf(3 - player)] += laps;
+        }
+        int[] next = table.getNext(player);
+        int pointer = pit;
+        for (int i = stones - laps * cycle; i > 0; --i) {
+            pointer = next[pointer];
+            pits[pointer]--;
+        }
+        pits[pit] = stones;
+    }
+
+    /**
+     * {@link #unsow} with every slot's stones from the table
+     */
+    private void unsowTable(int player, int pit, int stones, int capture) {
+        if (stones < 1) {
+            return;
+        }
+        if (capture != 0) {
+            table.getVariant().uncapture(pits, table.getGeometry(), player, capture);
+        }
+
+        int cycle = table.getCycle();
+        int laps = stones / cycle;
+        int move = (pit - table.getGeometry().offsetOf(player)) * cycle + stones - laps * cycle;
+        int[] lap = table.getLap(player);
+        int[] deal = table.getDeals(player);
+        int from = move * pits.length;
+        for (int i = 0; i < pits.length; ++i) {
+            pits[i] -= laps * lap[i] + deal[from + i];
+        }
+        pits[pit] = stones;
+    }
+
+    /**
+     * {@link #unsow} on the standard board, with its sizes as constants
+     */
+    private void unsowStandard(int player, int pit, int stones, int capture) {
+        if (stones < 1) {
+            return;
+        }
+        int store = storeOf(player);
+        if (capture != 0) {
+            int landing = capture >>> 8;
+            int taken = capture & 0xFF;
+            pits[store] -= taken + 1;
+            pits[landing] = 1;
+            pits[opposite(landing)] = taken;
+        }
+
+        int skip = player == 1 ? STORE_TWO : STORE_ONE;
+        int laps = stones / CYCLE;
+        int remainder = stones % CYCLE;
+        if (laps > 0) {
+            for (int i = 0; i < SLOTS; ++i) {
+                pits[i] -= laps;
+            }
+            pits[skip] += laps;
+        }
+        int pointer = pit;
+        for (int i = 0; i < remainder; ++i) {
+            ++pointer;
+            if (pointer == SLOTS) {
+                pointer = 0;
+            }
+            if (pointer == skip) {
+                ++pointer;
+                if (pointer == SLOTS) {
+                    pointer = 0;
+                }
+            }
+            pits[pointer]--;
+        }
+        pits[pit] = stones;
+    }
+
+    /**
+     * Put back a row moved into its store by {@link #sweep}
+     * @param swept the row, from {@link #getLastSweep}
+     */
+    public void unsweep(long swept) {
+        if (swept == 0) {
+            return;
+        }
+        int player = (int) (swept >>> SWEEP_OWNER_SHIFT);
+        BoardGeometry geometry = table.getGeometry();
+        int offset = geometry.offsetOf(player);
+        int store = geometry.storeOf(player);
+        for (int i = 0; i < geometry.getPitsPerSide(); ++i) {
+            int stones = (int) (swept >>> (i * SWEEP_BITS)) & ((1 << SWEEP_BITS) - 1);
+            pits[offset + i] = stones;
+            pits[store] -= stones;
+        }
+    }
+
+    /**
+     * Get the capture made by the last {@link #sow}
+     * @return the capture as described by {@link #lastCapture}, or 0 if there was none
+     */
+    public int getLastCapture() {
+        return lastCapture;
+    }
+
+    /**
+     * Get the row moved into a store by the last {@link #sweep}
+     * @return the row's stones seven bits per pit, at most 127 each, and its owner in bits 56-57,
+     * or 0 if nothing was swept
+     */
+    public long getLastSweep() {
+        return lastSweep;
+    }
+
+    /**
+     * Copy the board into an array laid out relative to a player:
+     * that player's pits and store first, then the opponent's
+     * @param player the player at the bottom of the view
+     * @param view destination array with one element per slot
+     */
+    public void copyRelative(int player, int[] view) {
+        int half = pits.length >> 1;
+        if (player == 1) {
+            System.arraycopy(pits, 0, view, 0, pits.length);
+        } else {
+            System.arraycopy(pits, half, view, 0, half);
+            System.arraycopy(pits, 0, view, half, half);
+        }
+    }
+
+    /**
+     * Retrieve the absolutely indexed stones. The array is live, do not modify it.
+     * @return the board
+     */
+    public int[] getPits() {
+        return pits;
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Undo and redo history of a game, kept as one small record per move
+ * instead of copies of the board.
+ *
+ * Each record packs into a long: the absolute pit, the stones it held,
+ * the capture the move made, the player who moved, and whether the turn
+ * was confirmed afterwards. Undoing a move runs the sowing backwards with
+ * {@link MoveEngine#unsow}, and redoing it plays it again, so both take
+ * the same time however long the game is. The stones swept up at the end
+ * of the game are kept once, since only the last move can end the game.
+ *
+ * The history holds at most a fixed number of moves; beyond that the
+ * oldest moves are forgotten.
+ * @author Ashton Headley
+ */
+public class MoveHistory {
+
+    /**
+     * Number of moves kept when no limit is given
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private static final int PIT_MASK = 0x1F;
+    private static final int STONES_SHIFT = 5;
+    private static final int CAPTURE_SHIFT = 13;
+    private static final int CAPTURE_MASK = (1 << RuleVariant.CAPTURE_BITS) - 1;
+    private static final long PLAYER_TWO = 1L << (CAPTURE_SHIFT + RuleVariant.CAPTURE_BITS);
+    private static final long CONFIRMED = PLAYER_TWO << 1;
+
+    private final int capacity;
+
+    // ring buffer of records; moves past the cursor can be redone
+    private long[] records;
+    private int first;
+    private int count;
+    private int cursor;
+
+    // the stones swept up by the last move, when it ended the game
+    private long sweep;
+
+    /**
+     * Initialize the class with room for {@link #DEFAULT_CAPACITY} moves
+     */
+    public MoveHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initialize the class
+     * @param capacity most moves to remember
+     */
+    public MoveHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.records = new long[Math.min(16, capacity)];
+    }
+
+    /**
+     * Make a move and remember it, forgetting any moves that were undone
+     * @param model the game
+     * @param pit pit relative to the player to move, 0-5 on the standard board
+     */
+    public void play(Model model, int pit) {
+        MoveEngine engine = model.getEngine();
+        int player = model.getCurrentPlayer();
+        int absolute = pit + model.getGeometry().offsetOf(player);
+        int stones = engine.getPits()[absolute];
+
+        model.doPlayerTurn(pit);
+
+        // choosing an empty pit changes nothing, so there is nothing to undo
+        if (stones == 0) {
+            return;
+        }
+        long record = absolute | (long) stones << STONES_SHIFT
+                | (long) engine.getLastCapture() << CAPTURE_SHIFT
+                | (player == 2 ? PLAYER_TWO : 0);
+        sweep = engine.getLastSweep();
+        count = cursor;
+        if (count == capacity) {
+            first = index(1);
+            --count;
+        } else if (count == records.length) {
+            grow();
+        }
+        records[index(count)] = record;
+        cursor = ++count;
+    }
+
+    /**
+     * End the turn and remember that the last move was confirmed
+     * @param model the game
+     * @return whether the turn could be ended
+     */
+    public boolean confirm(Model model) {
+        if (!model.confirmTurn()) {
+            return false;
+        }
+        if (cursor > 0) {
+            records[index(cursor - 1)] |= CONFIRMED;
+        }
+        return true;
+    }
+
+    /**
+     * Take back the last move, and the turn change after it
+     * @param model the game the moves were played on
+     * @return false if there is nothing to undo
+     */
+    public boolean undo(Model model) {
+        if (cursor == 0) {
+            return false;
+        }
+        long record = records[index(--cursor)];
+        int player = (record & PLAYER_TWO) != 0 ? 2 : 1;
+        MoveEngine engine = model.getEngine();
+
+        // only the game's last move can have swept the rows
+        if (cursor == count - 1) {
+            engine.unsweep(sweep);
+        }
+        engine.unsow(player, (int) (record & PIT_MASK), (int) (record >>> STONES_SHIFT) & 0xFF,
+                (int) (record >>> CAPTURE_SHIFT) & CAPTURE_MASK);
+        model.setPosition(engine.getPits(), player);
+        GameMetrics.countUndo();
+        return true;
+    }
+
+    /**
+     * Play the next undone move again, confirming it if it was confirmed before
+     * @param model the game the moves were played on
+     * @return false if there is nothing to redo
+     */
+    public boolean redo(Model model) {
+        if (cursor == count) {
+            return false;
+        }
+        long record = records[index(cursor++)];
+        int player = (record & PLAYER_TWO) != 0 ? 2 : 1;
+        model.doPlayerTurn((int) (record & PIT_MASK) - model.getGeometry().offsetOf(player));
+        if (cursor == count) {
+            sweep = model.getEngine().getLastSweep();
+        }
+        if ((record & CONFIRMED) != 0) {
+            model.confirmTurn();
+        }
+        GameMetrics.countRedo();
+        return true;
+    }
+
+    /**
+     * Whether there is a move to undo
+     * @return true if {@link #undo} would do something
+     */
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+
+    /**
+     * Whether there is an undone move to play again
+     * @return true if {@link #redo} would do something
+     */
+    public boolean canRedo() {
+        return cursor < count;
+    }
+
+    /**
+     * Forget every move
+     */
+    public void clear() {
+        first = 0;
+        count = 0;
+        cursor = 0;
+        sweep = 0;
+    }
+
+    /**
+     * Get the number of moves that can be undone
+     * @return moves before the cursor
+     */
+    public int size() {
+        return cursor;
+    }
+
+    /**
+     * Get the most moves remembered
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Find a record in the ring buffer
+     * @param i position counted from the oldest remembered move
+     * @return index into the records
+     */
+    private int index(int i) {
+        int index = first + i;
+        return index < records.length ? index : index - records.length;
+    }
+
+    /**
+     * Double the buffer, up to the capacity, keeping the oldest move first
+     */
+    private void grow() {
+        long[] bigger = new long[(int) Math.min(capacity, records.length * 2L)];
+        for (int i = 0; i < count; ++i) {
+            bigger[i] = records[index(i)];
+        }
+        records = bigger;
+        first = 0;
+    }
+}
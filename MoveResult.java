@@ -0,0 +1,82 @@
+/**
+ * Reply to a move sent to a {@link GameServer} match.
+ * @author Ashton Headley
+ */
+public class MoveResult {
+
+    /**
+     * The move was played
+     */
+    public static final int OK = 0;
+
+    /**
+     * The pit is empty or out of range
+     */
+    public static final int ILLEGAL = 1;
+
+    /**
+     * It is the other player's move
+     */
+    public static final int NOT_YOUR_TURN = 2;
+
+    /**
+     * The game has already ended
+     */
+    public static final int GAME_OVER = 3;
+
+    /**
+     * There is no match with that id
+     */
+    public static final int NO_MATCH = 4;
+
+    /**
+     * One of the status constants above
+     */
+    public final int status;
+
+    /**
+     * The board after the request, player 2's side, as in {@link PackedBoard}
+     */
+    public final long hi;
+
+    /**
+     * The board after the request, player 1's side
+     */
+    public final long lo;
+
+    /**
+     * Player to move next, 1 or 2
+     */
+    public final int nextPlayer;
+
+    /**
+     * -1 while the game goes on, 0 for a tie, otherwise the winning player
+     */
+    public final int winner;
+
+    /**
+     * Initialize the class
+     * @param status one of the status constants
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param nextPlayer player to move next
+     * @param winner winner, or -1
+     */
+    public MoveResult(int status, long hi, long lo, int nextPlayer, int winner) {
+        this.status = status;
+        this.hi = hi;
+        this.lo = lo;
+        this.nextPlayer = nextPlayer;
+        this.winner = winner;
+    }
+
+    /**
+     * Describe the result
+     * @return status, next player and board
+     */
+    @Override
+    public String toString() {
+        String[] names = {"ok", "illegal", "not your turn", "game over", "no match"};
+        return names[status] + " next=" + nextPlayer + " winner=" + winner + " " + PackedBoard.toString(hi, lo);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Kalah where the game ends as soon as a row runs out and the stones left
+ * on the board count for no one; only the stores decide the winner.
+ * @author Ashton Headley
+ */
+public class NoSweepRules extends KalahRules {
+
+    /**
+     * Initialize the class
+     */
+    public NoSweepRules() {
+        super("No sweep", false);
+    }
+
+    @Override
+    public boolean sweepsAtEnd() {
+        return false;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Best moves for the early positions of both starting setups, read from a
+ * file written by {@link OpeningBookBuilder}.
+ *
+ * The file is memory-mapped, so opening it costs almost nothing and every
+ * JVM on a machine shares the same pages. Entries are sorted by the
+ * position's {@link Zobrist} hash, and a lookup is a binary search.
+ *
+ * File layout: a 16 byte header (magic, entry size, entry count, search
+ * depth), then the entries. Each entry holds the hash (8 bytes), the
+ * score (2 bytes), the best pit (1 byte) and the search depth (1 byte).
+ * @author Ashton Headley
+ */
+public class OpeningBook {
+
+    /**
+     * Identifies a book file
+     */
+    public static final int MAGIC = 0x4B424F4B;
+
+    /**
+     * Size of the file header in bytes
+     */
+    public static final int HEADER_BYTES = 16;
+
+    /**
+     * Size of one entry in bytes
+     */
+    public static final int ENTRY_BYTES = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int entries;
+    private final int depth;
+
+    /**
+     * Initialize the class
+     * @param buffer the mapped file
+     */
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.entries = buffer.getInt(8);
+        this.depth = buffer.getInt(12);
+    }
+
+    /**
+     * Open a book file
+     * @param file the book written by {@link OpeningBookBuilder}
+     * @return the book, memory-mapped read-only
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != ENTRY_BYTES) {
+                throw new IOException(file + " is not an opening book");
+            }
+            return new OpeningBook(buffer);
+        }
+    }
+
+    /**
+     * Find a position's entry
+     * @param key Zobrist hash of the position
+     * @return byte offset of the entry, or -1 if the position is not in the book
+     */
+    private int find(long key) {
+        int low = 0, high = entries - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long found = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (found < key) {
+                low = mid + 1;
+            } else if (found > key) {
+                high = mid - 1;
+            } else {
+                return HEADER_BYTES + mid * ENTRY_BYTES;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Look up the best move of a position
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return pit 0-5 relative to the player to move, or -1 if the position is not in the book
+     */
+    public int probe(long hi, long lo) {
+        int offset = find(Zobrist.hash(hi, lo));
+        if (offset < 0) {
+            return -1;
+        }
+        int pit = buffer.get(offset + 10);
+
+        // a hash collision must never produce an illegal move
+        return PackedBoard.isLegal(hi, lo, pit) ? pit : -1;
+    }
+
+    /**
+     * Look up the score of a position's best move
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return score for the player to move, or {@link EndgameTable#UNKNOWN} if not in the book
+     */
+    public int probeScore(long hi, long lo) {
+        int offset = find(Zobrist.hash(hi, lo));
+        return offset < 0 ? EndgameTable.UNKNOWN : buffer.getShort(offset + 8);
+    }
+
+    /**
+     * Get the number of positions in the book
+     * @return entry count
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Get the depth every book position was searched to
+     * @return search depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes an {@link OpeningBook} by searching every position reachable in
+ * the first few moves from both starting setups (3 and 4 stones per pit).
+ *
+ * Usage: java OpeningBookBuilder [plies] [depth] [file] [threads]
+ * @author Ashton Headley
+ */
+public class OpeningBookBuilder {
+
+    /**
+     * Build a book from the command line
+     * @param args optional plies, search depth, file name and thread count
+     */
+    public static void main(String[] args) throws Exception {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+        Path file = Paths.get(args.length > 2 ? args[2] : "opening.book");
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        build(file, plies, depth, threads);
+    }
+
+    /**
+     * Search the early positions and write the book
+     * @param file where to write the book
+     * @param plies how many moves from the start to cover
+     * @param depth depth to search every position to
+     * @param threads number of worker threads
+     * @throws IOException if the file cannot be written
+     */
+    public static void build(Path file, int plies, int depth, int threads) throws Exception {
+        long start = System.nanoTime();
+
+        // collect positions by hash, so transpositions are searched once
+        Map<Long, long[]> positions = new HashMap<>();
+        long[] initial = new long[2];
+        for (int stones = 3; stones <= 4; ++stones) {
+            PackedBoard.initial(stones, initial);
+            collect(initial[0], initial[1], plies, positions);
+        }
+        long[] keys = new long[positions.size()];
+        int n = 0;
+        for (long key : positions.keySet()) {
+            keys[n++] = key;
+        }
+        Arrays.sort(keys);
+        System.out.println(keys.length + " positions within " + plies + " plies");
+
+        short[] scores = new short[keys.length];
+        byte[] moves = new byte[keys.length];
+        TranspositionTable table = new TranspositionTable(256);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int first = t;
+                workers.add(pool.submit(() -> {
+                    AlphaBetaSearch search = new AlphaBetaSearch(Long.MAX_VALUE / 2_000_000L, depth, table);
+                    for (int i = first; i < keys.length; i += threads) {
+                        long[] position = positions.get(keys[i]);
+                        SearchResult result = search.search(position[0], position[1]);
+                        scores[i] = (short) result.score;
+                        moves[i] = (byte) result.pit;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + keys.length * OpeningBook.ENTRY_BYTES);
+        out.putInt(OpeningBook.MAGIC).putInt(OpeningBook.ENTRY_BYTES).putInt(keys.length).putInt(depth);
+        for (int i = 0; i < keys.length; ++i) {
+            out.putLong(keys[i]).putShort(scores[i]).put(moves[i]).put((byte) depth);
+        }
+        out.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        System.out.printf("wrote %s in %.1f s%n", file, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Add every unfinished position within a number of moves
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param plies moves left to explore
+     * @param positions receives {hi, lo, plies explored} keyed by hash
+     */
+    private static void collect(long hi, long lo, int plies, Map<Long, long[]> positions) {
+        if (PackedBoard.isGameOver(hi, lo)) {
+            return;
+        }
+
+        // a transposition reached earlier with as many moves left is already explored
+        long key = Zobrist.hash(hi, lo);
+        long[] seen = positions.get(key);
+        if (seen != null && seen[2] >= plies) {
+            return;
+        }
+        positions.put(key, new long[] {hi, lo, plies});
+        if (plies == 0) {
+            return;
+        }
+        long[] child = new long[2];
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (PackedBoard.isLegal(hi, lo, pit)) {
+                PackedBoard.applyMove(hi, lo, pit, child);
+                collect(child[0], child[1], plies - 1, positions);
+            }
+        }
+    }
+}
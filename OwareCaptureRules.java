@@ -0,0 +1,54 @@
+/**
+ * Kalah sowing with Oware captures: a last stone that makes a pit of the
+ * opponent's row hold two or three stones captures that pit, and so do
+ * the pits before it in the row, as long as each holds two or three.
+ * Landing in the mover's own row captures nothing.
+ *
+ * A capture is recorded as the landing slot in bits 0-4, the number of
+ * pits taken in bits 5-8, and for each of them, from the landing slot
+ * back, a bit from bit 9 on that is set if it held three stones.
+ * @author Ashton Headley
+ */
+public class OwareCaptureRules extends RuleVariant {
+
+    /**
+     * Initialize the class
+     */
+    public OwareCaptureRules() {
+        super("Oware capture");
+    }
+
+    @Override
+    protected boolean canCapture(BoardGeometry geometry, int player, int slot) {
+        int offset = geometry.offsetOf(3 - player);
+        return slot >= offset && slot < offset + geometry.getPitsPerSide();
+    }
+
+    @Override
+    protected int capture(int[] pits, BoardGeometry geometry, int player, int slot) {
+        int first = geometry.offsetOf(3 - player);
+        int taken = 0, threes = 0, total = 0;
+        for (int pit = slot; pit >= first && (pits[pit] == 2 || pits[pit] == 3); --pit) {
+            threes |= (pits[pit] - 2) << taken;
+            total += pits[pit];
+            pits[pit] = 0;
+            ++taken;
+        }
+        if (taken == 0) {
+            return 0;
+        }
+        pits[geometry.storeOf(player)] += total;
+        return threes << 9 | taken << 5 | slot;
+    }
+
+    @Override
+    protected void uncapture(int[] pits, BoardGeometry geometry, int player, int capture) {
+        int slot = capture & 0x1F;
+        int taken = (capture >>> 5) & 0xF;
+        for (int i = 0; i < taken; ++i) {
+            int stones = 2 + ((capture >>> (9 + i)) & 1);
+            pits[slot - i] = stones;
+            pits[geometry.storeOf(player)] -= stones;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/**
+ * Compact encoding of a Mancala position in two longs.
+ *
+ * Each long holds one side of the board in the absolute layout used by
+ * {@link MoveEngine}: {@code lo} holds player 1's pits 0-5 and store 6,
+ * {@code hi} holds player 2's pits 7-12 and store 13. Pits take 6 bits and
+ * the store takes 8 bits, so a side fits in 44 bits. Bit 44 of {@code hi}
+ * is set when player 2 is to move.
+ *
+ * All operations are static and work on the two longs directly, so search
+ * code can walk positions without creating objects.
+ * @author Ashton Headley
+ */
+public final class PackedBoard {
+
+    /**
+     * Bits per pit
+     */
+    public static final int PIT_BITS = 6;
+
+    /**
+     * Bits per store
+     */
+    public static final int STORE_BITS = 8;
+
+    /**
+     * Bit position of the store within one side
+     */
+    public static final int STORE_SHIFT = MoveEngine.PITS_PER_SIDE * PIT_BITS;
+
+    /**
+     * Bit position of the side-to-move flag in {@code hi}
+     */
+    public static final int SIDE_SHIFT = STORE_SHIFT + STORE_BITS;
+
+    private static final long PIT_MASK = (1L << PIT_BITS) - 1;
+    private static final long STORE_MASK = (1L << STORE_BITS) - 1;
+    private static final long SIDE_BIT = 1L << SIDE_SHIFT;
+
+    /**
+     * Mask of all pit lanes on one side
+     */
+    private static final long PITS_MASK = (1L << STORE_SHIFT) - 1;
+
+    /**
+     * The low bit of every pit lane and of the store, used to add to all lanes at once
+     */
+    private static final long LANE_ONES;
+
+    /**
+     * The low bit of every pit lane, without the store
+     */
+    private static final long PIT_ONES;
+
+    static {
+        long ones = 0;
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            ones |= 1L << (i * PIT_BITS);
+        }
+        PIT_ONES = ones;
+        LANE_ONES = ones | (1L << STORE_SHIFT);
+    }
+
+    private PackedBoard() {}
+
+    /**
+     * Build the starting position
+     * @param stones stones per pit
+     * @param result receives {hi, lo}
+     */
+    public static void initial(int stones, long[] result) {
+        long side = PIT_ONES * stones;
+        result[0] = side;
+        result[1] = side;
+    }
+
+    /**
+     * Get the bit offset of a slot within its side
+     * @param slot absolute slot 0-13
+     * @return shift amount
+     */
+    private static int shiftOf(int slot) {
+        int local = slot % 7;
+        return local == MoveEngine.PITS_PER_SIDE ? STORE_SHIFT : local * PIT_BITS;
+    }
+
+    /**
+     * Get the number of stones in a slot
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param slot absolute slot 0-13
+     * @return stone count
+     */
+    public static int get(long hi, long lo, int slot) {
+        long side = slot < 7 ? lo : hi;
+        long mask = slot % 7 == MoveEngine.PITS_PER_SIDE ? STORE_MASK : PIT_MASK;
+        return (int) ((side >>> shiftOf(slot)) & mask);
+    }
+
+    /**
+     * Get the player to move
+     * @param hi player 2's side
+     * @return 1 or 2
+     */
+    public static int sideToMove(long hi) {
+        return (hi & SIDE_BIT) != 0 ? 2 : 1;
+    }
+
+    /**
+     * Whether a player's pits are all empty
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param player 1 or 2
+     * @return true if the row is empty
+     */
+    public static boolean rowEmpty(long hi, long lo, int player) {
+        return ((player == 1 ? lo : hi) & PITS_MASK) == 0;
+    }
+
+    /**
+     * Whether the game has ended, i.e. either row is empty
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return true if no more moves can be made
+     */
+    public static boolean isGameOver(long hi, long lo) {
+        return (lo & PITS_MASK) == 0 || (hi & PITS_MASK) == 0;
+    }
+
+    /**
+     * Get the winner of a finished position
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return -1 if the game continues, 0 for a tie, otherwise the winning player
+     */
+    public static int winner(long hi, long lo) {
+        if (!isGameOver(hi, lo)) {
+            return -1;
+        }
+        int one = get(hi, lo, MoveEngine.STORE_ONE);
+        int two = get(hi, lo, MoveEngine.STORE_TWO);
+        return one > two ? 1 : one < two ? 2 : 0;
+    }
+
+    /**
+     * Count the stones still in play
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return stones in all twelve pits
+     */
+    public static int stonesInPits(long hi, long lo) {
+        int total = 0;
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            int shift = i * PIT_BITS;
+            total += (int) ((lo >>> shift) & PIT_MASK) + (int) ((hi >>> shift) & PIT_MASK);
+        }
+        return total;
+    }
+
+    /**
+     * Whether the player to move may choose a pit
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param pit pit 0-5 relative to the player to move
+     * @return true if the pit holds stones and the game is not over
+     */
+    public static boolean isLegal(long hi, long lo, int pit) {
+        int player = sideToMove(hi);
+        return !isGameOver(hi, lo) && get(hi, lo, pit + MoveEngine.offsetOf(player)) > 0;
+    }
+
+    /**
+     * Work out what a move would capture without playing it
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param pit pit 0-5 relative to the player to move
+     * @return stones moved to the store by the capture, including the capturing stone, or 0
+     */
+    public static int captureSize(long hi, long lo, int pit) {
+        boolean mine = sideToMove(hi) == 1;
+        long own = mine ? lo : hi;
+        long other = mine ? hi : lo;
+        int stones = (int) ((own >>> (pit * PIT_BITS)) & PIT_MASK);
+        int landing = (pit + stones) % MoveEngine.CYCLE;
+        if (stones == 0 || landing >= MoveEngine.PITS_PER_SIDE) {
+            return 0;
+        }
+
+        int laps = stones / MoveEngine.CYCLE;
+        int remainder = stones % MoveEngine.CYCLE;
+
+        // the landing pit starts empty when the move goes all the way around to it
+        int before = landing == pit ? 0 : (int) ((own >>> (landing * PIT_BITS)) & PIT_MASK);
+        if (before + laps + (remainder > 0 ? 1 : 0) != 1) {
+            return 0;
+        }
+
+        int inverse = MoveEngine.PITS_PER_SIDE - 1 - landing;
+        int distance = (7 + inverse - pit) % MoveEngine.CYCLE;
+        int opposite = (int) ((other >>> (inverse * PIT_BITS)) & PIT_MASK) + laps
+                + (distance >= 1 && distance <= remainder ? 1 : 0);
+        return opposite > 0 ? opposite + 1 : 0;
+    }
+
+    /**
+     * Apply a move for the player to move. Choosing an empty pit leaves the
+     * position unchanged, as {@link Model#moveStones(int)} does. The side to
+     * move only changes when the last stone does not land in the mover's
+     * store, and the remaining stones are swept into the stores when a row
+     * empties.
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param pit pit 0-5 relative to the player to move
+     * @param result receives the new {hi, lo}
+     */
+    public static void applyMove(long hi, long lo, int pit, long[] result) {
+        int player = sideToMove(hi);
+        boolean mine = player == 1;
+        long own = mine ? lo : hi;
+        long other = mine ? hi : lo;
+        int shift = pit * PIT_BITS;
+        int stones = (int) ((own >>> shift) & PIT_MASK);
+
+        if (stones < 1) {
+            result[0] = hi;
+            result[1] = lo;
+            return;
+        }
+        own &= ~(PIT_MASK << shift);
+
+        // full laps cover the mover's pits and store and the opponent's pits
+        int laps = stones / MoveEngine.CYCLE;
+        int remainder = stones % MoveEngine.CYCLE;
+        own += LANE_ONES * laps;
+        other += PIT_ONES * laps;
+
+        // deal the remainder; local slots 0-6 are the mover's, 7-12 the opponent's pits
+        int pointer = pit;
+        for (int i = 0; i < remainder; ++i) {
+            if (++pointer == MoveEngine.CYCLE) {
+                pointer = 0;
+            }
+            if (pointer < 7) {
+                own += 1L << shiftOf(pointer);
+            } else {
+                other += 1L << ((pointer - 7) * PIT_BITS);
+            }
+        }
+
+        boolean extraTurn = pointer == MoveEngine.PITS_PER_SIDE;
+
+        // Check for capture on the mover's side
+        if (pointer < MoveEngine.PITS_PER_SIDE && ((own >>> (pointer * PIT_BITS)) & PIT_MASK) == 1) {
+            int inverseShift = (MoveEngine.PITS_PER_SIDE - 1 - pointer) * PIT_BITS;
+            long captured = (other >>> inverseShift) & PIT_MASK;
+            if (captured > 0) {
+                other &= ~(PIT_MASK << inverseShift);
+                own &= ~(PIT_MASK << (pointer * PIT_BITS));
+                own += (captured + 1) << STORE_SHIFT;
+            }
+        }
+
+        // sweep the remaining stones when a row empties
+        if ((own & PITS_MASK) == 0 || (other & PITS_MASK) == 0) {
+            own = sweep(own);
+            other = sweep(other);
+        }
+
+        lo = mine ? own : other;
+        hi = (mine ? other : own) & ~SIDE_BIT;
+        if (mine != extraTurn) {
+            hi |= SIDE_BIT;
+        }
+        result[0] = hi;
+        result[1] = lo;
+    }
+
+    /**
+     * Move every stone of one side into its store
+     * @param side one packed side without the side-to-move flag
+     * @return the swept side
+     */
+    private static long sweep(long side) {
+        long total = 0;
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            total += (side >>> (i * PIT_BITS)) & PIT_MASK;
+        }
+        return (side & ~PITS_MASK) + (total << STORE_SHIFT);
+    }
+
+    /**
+     * Encode a model's position
+     * @param model the game, on the standard board under Kalah rules
+     * @param result receives {hi, lo}
+     * @throws IllegalArgumentException if the board is not the standard size or the rules are not Kalah's
+     */
+    public static void fromModel(Model model, long[] result) {
+        if (!model.getEngine().isStandard()) {
+            throw new IllegalArgumentException("only the standard board under Kalah rules can be packed, not "
+                    + model.getGeometry() + " under " + model.getVariant());
+        }
+        int[] pits = model.getEngine().getPits();
+        long hi = 0, lo = 0;
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            if (slot < 7) {
+                lo |= (long) pits[slot] << shiftOf(slot);
+            } else {
+                hi |= (long) pits[slot] << shiftOf(slot);
+            }
+        }
+        if (model.getCurrentPlayer() == 2) {
+            hi |= SIDE_BIT;
+        }
+        result[0] = hi;
+        result[1] = lo;
+    }
+
+    /**
+     * Decode a position into the absolute layout of {@link MoveEngine}
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param pits destination array of length 14
+     */
+    public static void unpack(long hi, long lo, int[] pits) {
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            pits[slot] = get(hi, lo, slot);
+        }
+    }
+
+    /**
+     * Decode a position into a new model
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return a model holding the position
+     */
+    public static Model toModel(long hi, long lo) {
+        Model model = new Model();
+        int[] pits = new int[MoveEngine.SLOTS];
+        unpack(hi, lo, pits);
+        model.setPosition(pits, sideToMove(hi));
+        model.setWinningPlayer(winner(hi, lo));
+        return model;
+    }
+
+    /**
+     * Describe a position for debugging
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return the stones of every slot and the player to move
+     */
+    public static String toString(long hi, long lo) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            if (slot > 0) {
+                sb.append(", ");
+            }
+            sb.append(get(hi, lo, slot));
+        }
+        return sb.append("] player ").append(sideToMove(hi)).toString();
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP search: several {@link AlphaBetaSearch} threads search the same
+ * position and share one {@link TranspositionTable}.
+ *
+ * The threads do not coordinate beyond the table. Helpers start their
+ * iterative deepening at staggered depths so they fill the table with
+ * results the main thread can use. The caller's thread is the main
+ * thread; once it finishes, the helpers are stopped and its result is
+ * returned with the nodes of all threads added up. Each thread counts its
+ * own use of the table, and the counts are added up when asked for.
+ * @author Ashton Headley
+ */
+public class ParallelSearch implements AutoCloseable {
+
+    private final AlphaBetaSearch[] searchers;
+    private final ExecutorService helpers;
+    private final Future<?>[] running;
+    private final long[] helperNodes;
+
+    /**
+     * Initialize the class
+     * @param threads number of searching threads including the caller's
+     * @param budgetMillis wall-clock time allowed per move
+     * @param maxDepth deepest iteration to search
+     * @param table table shared by all threads
+     */
+    public ParallelSearch(int threads, long budgetMillis, int maxDepth, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        searchers = new AlphaBetaSearch[threads];
+        for (int i = 0; i < threads; ++i) {
+            searchers[i] = new AlphaBetaSearch(budgetMillis, maxDepth, table);
+            searchers[i].setStartDepth(1 + (i & 1));
+        }
+        helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread thread = new Thread(r, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        running = new Future<?>[threads];
+        helperNodes = new long[threads];
+    }
+
+    /**
+     * Find the best move for the player to move in a model
+     * @param model the game
+     * @return the main thread's result, counting the nodes of all threads
+     */
+    public SearchResult search(Model model) {
+        long[] state = new long[2];
+        PackedBoard.fromModel(model, state);
+        return search(state[0], state[1]);
+    }
+
+    /**
+     * Find the best move for the player to move
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return the main thread's result, counting the nodes of all threads
+     */
+    public SearchResult search(long hi, long lo) {
+        for (AlphaBetaSearch searcher : searchers) {
+            searcher.clearStop();
+        }
+        for (int i = 1; i < searchers.length; ++i) {
+            final int id = i;
+            running[i] = helpers.submit(() -> {
+                helperNodes[id] = searchers[id].search(hi, lo).nodes;
+            });
+        }
+
+        SearchResult main = searchers[0].search(hi, lo);
+
+        long nodes = main.nodes;
+        for (int i = 1; i < searchers.length; ++i) {
+            searchers[i].stop();
+        }
+        for (int i = 1; i < searchers.length; ++i) {
+            try {
+                running[i].get();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            nodes += helperNodes[i];
+        }
+        return new SearchResult(main.pit, main.score, main.depth, nodes, main.elapsedNanos);
+    }
+
+    /**
+     * Let every thread look up positions in an endgame table
+     * @param endgame a solved endgame table, or null
+     */
+    public void setEndgameTable(EndgameTable endgame) {
+        for (AlphaBetaSearch searcher : searchers) {
+            searcher.setEndgameTable(endgame);
+        }
+    }
+
+    /**
+     * Get the transposition table probes of all threads that found the position.
+     * Call between searches.
+     * @return hit count
+     */
+    public long getTableHits() {
+        long total = 0;
+        for (AlphaBetaSearch searcher : searchers) {
+            total += searcher.getTableHits();
+        }
+        return total;
+    }
+
+    /**
+     * Get the transposition table probes of all threads that did not find the position.
+     * Call between searches.
+     * @return miss count
+     */
+    public long getTableMisses() {
+        long total = 0;
+        for (AlphaBetaSearch searcher : searchers) {
+            total += searcher.getTableMisses();
+        }
+        return total;
+    }
+
+    /**
+     * Get the misses of all threads where the bucket held other positions.
+     * Call between searches.
+     * @return collision count
+     */
+    public long getTableCollisions() {
+        long total = 0;
+        for (AlphaBetaSearch searcher : searchers) {
+            total += searcher.getTableCollisions();
+        }
+        return total;
+    }
+
+    /**
+     * Get the results all threads stored in the transposition table.
+     * Call between searches.
+     * @return store count
+     */
+    public long getTableStores() {
+        long total = 0;
+        for (AlphaBetaSearch searcher : searchers) {
+            total += searcher.getTableStores();
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of searching threads
+     * @return thread count including the caller's
+     */
+    public int getThreads() {
+        return searchers.length;
+    }
+
+    /**
+     * Stop the helper threads
+     */
+    @Override
+    public void close() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Measures how Lazy SMP search scales from one thread up to the number of cores.
+ *
+ * Usage: java ParallelSearchBenchmark [maxThreads] [depth] [stones]
+ * @author Ashton Headley
+ */
+public class ParallelSearchBenchmark {
+
+    /**
+     * Search the starting position to a fixed depth with 1, 2, 4 ... threads
+     * and print the time to depth, nodes/sec and speedup over one thread
+     * @param args optional thread limit, depth and stones per pit
+     */
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 18;
+        int stones = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        long[] start = new long[2];
+        PackedBoard.initial(stones, start);
+        TranspositionTable table = new TranspositionTable(64);
+
+        // warm up the JIT so the one-thread baseline is not penalized
+        try (ParallelSearch warmup = new ParallelSearch(1, Long.MAX_VALUE / 2_000_000L, depth, table)) {
+            warmup.search(start[0], start[1]);
+        }
+
+        System.out.println("threads  depth  time(ms)  nodes  nodes/s  speedup  table hits");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+            table.clear();
+            try (ParallelSearch search = new ParallelSearch(threads, Long.MAX_VALUE / 2_000_000L, depth, table)) {
+                SearchResult result = search.search(start[0], start[1]);
+                double millis = result.elapsedNanos / 1e6;
+                if (threads == 1) {
+                    baseline = millis;
+                }
+                long probes = search.getTableHits() + search.getTableMisses();
+                System.out.printf("%7d  %5d  %8.1f  %d  %d  %.2fx  %.1f%%%n", threads, result.depth, millis,
+                        result.nodes, result.getNodesPerSecond(), baseline / millis,
+                        probes > 0 ? 100.0 * search.getTableHits() / probes : 0.0);
+            }
+        }
+    }
+}
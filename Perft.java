@@ -0,0 +1,260 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts every legal move sequence of a given length from the starting
+ * position, like perft in chess engines.
+ *
+ * A leaf is a sequence of exactly {@code depth} moves; an extra turn is a
+ * move of its own, and a game that ends early contributes no leaves. The
+ * detailed mode also counts how many of the last moves were captures,
+ * extra turns and game-ending moves. The bulk mode only counts leaves and
+ * does not play the last move. The model mode walks the tree with
+ * {@link Model} copies instead of {@link PackedBoard}, so both engines can
+ * be checked against each other. Known totals make this a regression
+ * check, and the nodes per second make it a benchmark.
+ *
+ * Usage: java Perft [depth] [stones] [detail|bulk|model] [threads]
+ * @author Ashton Headley
+ */
+public class Perft {
+
+    /**
+     * Below this remaining depth a subtree is searched on one thread
+     */
+    private static final int SPLIT_DEPTH = 6;
+
+    /**
+     * The totals of a perft run
+     */
+    public static class Counts {
+        public long leaves;
+        public long captures;
+        public long extraTurns;
+        public long gameEnds;
+
+        /**
+         * Add the totals of a subtree
+         * @param other counts of the subtree
+         */
+        public void add(Counts other) {
+            leaves += other.leaves;
+            captures += other.captures;
+            extraTurns += other.extraTurns;
+            gameEnds += other.gameEnds;
+        }
+
+        @Override
+        public String toString() {
+            return "leaves " + leaves + " captures " + captures + " extra turns " + extraTurns
+                    + " game ends " + gameEnds;
+        }
+    }
+
+    /**
+     * Run perft from the command line for every depth up to the one given
+     * @param args optional depth, stones per pit, mode and thread count
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int stones = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        String mode = args.length > 2 ? args[2] : "detail";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        long[] start = new long[2];
+        PackedBoard.initial(stones, start);
+        Model model = new Model();
+        model.setInitialStonesPerPit(stones);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+
+        for (int d = 1; d <= depth; ++d) {
+            long begin = System.nanoTime();
+            Counts counts;
+            if (mode.equals("model")) {
+                counts = new Counts();
+                model(model, d, counts);
+            } else if (pool != null) {
+                counts = pool.invoke(new Task(start[0], start[1], d, mode.equals("bulk")));
+            } else {
+                counts = new Counts();
+                if (mode.equals("bulk")) {
+                    counts.leaves = bulk(start[0], start[1], d);
+                } else {
+                    detail(start[0], start[1], d, counts);
+                }
+            }
+            long nanos = System.nanoTime() - begin;
+            System.out.printf("depth %2d  %s  %.1f ms  %.0f leaves/s%n", d, counts, nanos / 1e6,
+                    counts.leaves * 1e9 / Math.max(1, nanos));
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Count leaves and the kinds of last moves below a position
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param depth moves left to play
+     * @param counts receives the totals
+     */
+    public static void detail(long hi, long lo, int depth, Counts counts) {
+        long[] child = new long[2];
+        int side = PackedBoard.sideToMove(hi);
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (!PackedBoard.isLegal(hi, lo, pit)) {
+                continue;
+            }
+            if (depth == 1) {
+                counts.leaves++;
+                if (PackedBoard.captureSize(hi, lo, pit) > 0) {
+                    counts.captures++;
+                }
+            }
+            PackedBoard.applyMove(hi, lo, pit, child);
+            boolean over = PackedBoard.isGameOver(child[0], child[1]);
+            if (depth == 1) {
+                if (over) {
+                    counts.gameEnds++;
+                } else if (PackedBoard.sideToMove(child[0]) == side) {
+                    counts.extraTurns++;
+                }
+            } else if (!over) {
+                detail(child[0], child[1], depth - 1, counts);
+            }
+        }
+    }
+
+    /**
+     * Count leaves below a position without playing the last move
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @param depth moves left to play
+     * @return number of move sequences of that length
+     */
+    public static long bulk(long hi, long lo, int depth) {
+        if (PackedBoard.isGameOver(hi, lo)) {
+            return 0;
+        }
+        int offset = MoveEngine.offsetOf(PackedBoard.sideToMove(hi));
+        if (depth == 1) {
+            int legal = 0;
+            for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+                if (PackedBoard.get(hi, lo, offset + pit) > 0) {
+                    legal++;
+                }
+            }
+            return legal;
+        }
+
+        long[] child = new long[2];
+        long leaves = 0;
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (PackedBoard.get(hi, lo, offset + pit) > 0) {
+                PackedBoard.applyMove(hi, lo, pit, child);
+                leaves += bulk(child[0], child[1], depth - 1);
+            }
+        }
+        return leaves;
+    }
+
+    /**
+     * Count leaves and last-move kinds by playing on {@link Model} copies
+     * @param model the position, which is not modified
+     * @param depth moves left to play
+     * @param counts receives the totals; captures are seen as the mover's
+     * store growing by more than sowing alone can add
+     */
+    public static void model(Model model, int depth, Counts counts) {
+        int[] view = model.getPitStones();
+        for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+            if (view[pit] == 0) {
+                continue;
+            }
+            Model child = new Model(model);
+            int store = view[MoveEngine.STORE_ONE];
+            boolean extra = child.moveStones(pit);
+            int gained = child.getPitStones()[MoveEngine.STORE_ONE] - store;
+            child.checkForWin();
+            boolean over = child.getWinningPlayer() >= 0;
+
+            if (depth == 1) {
+                counts.leaves++;
+                if (gained > storePasses(view[pit], pit)) {
+                    counts.captures++;
+                }
+                if (over) {
+                    counts.gameEnds++;
+                } else if (extra) {
+                    counts.extraTurns++;
+                }
+            } else if (!over) {
+                if (!extra) {
+                    child.switchTurn();
+                }
+                model(child, depth - 1, counts);
+            }
+        }
+    }
+
+    /**
+     * Count how many stones sowing drops into the mover's own store
+     * @param stones stones picked up
+     * @param pit pit 0-5 they were picked up from
+     * @return stones added to the store by sowing alone
+     */
+    private static int storePasses(int stones, int pit) {
+        int laps = stones / MoveEngine.CYCLE;
+        int remainder = stones % MoveEngine.CYCLE;
+        return laps + (pit + remainder >= MoveEngine.PITS_PER_SIDE ? 1 : 0);
+    }
+
+    /**
+     * Splits the tree across a fork/join pool near the root
+     */
+    @SuppressWarnings("serial")
+    static class Task extends RecursiveTask<Counts> {
+        private final long hi, lo;
+        private final int depth;
+        private final boolean bulk;
+
+        Task(long hi, long lo, int depth, boolean bulk) {
+            this.hi = hi;
+            this.lo = lo;
+            this.depth = depth;
+            this.bulk = bulk;
+        }
+
+        @Override
+        protected Counts compute() {
+            Counts counts = new Counts();
+            if (depth <= SPLIT_DEPTH || PackedBoard.isGameOver(hi, lo)) {
+                if (bulk) {
+                    counts.leaves = bulk(hi, lo, depth);
+                } else {
+                    detail(hi, lo, depth, counts);
+                }
+                return counts;
+            }
+
+            long[] child = new long[2];
+            List<Task> tasks = new ArrayList<>();
+            for (int pit = 0; pit < MoveEngine.PITS_PER_SIDE; ++pit) {
+                if (PackedBoard.isLegal(hi, lo, pit)) {
+                    PackedBoard.applyMove(hi, lo, pit, child);
+                    if (!PackedBoard.isGameOver(child[0], child[1])) {
+                        tasks.add(new Task(child[0], child[1], depth - 1, bulk));
+                    }
+                }
+            }
+            invokeAll(tasks);
+            for (Task task : tasks) {
+                counts.add(task.join());
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes board images as PNG files quickly.
+ *
+ * A board image only has a handful of colors, so it is written as a
+ * palette image with one byte per pixel and compressed at the fastest
+ * level. Images with more than 256 colors are written as plain RGB.
+ * ImageIO's writer tries several row filters on every row, which takes
+ * many times longer than drawing the board. An encoder reuses its buffers
+ * and is not thread-safe, so use one per thread.
+ * @author Ashton Headley
+ */
+public class PngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int MAX_COLORS = 256;
+
+    // open addressing table from color to palette index
+    private static final int TABLE_SIZE = 1024;
+    private final int[] tableColors = new int[TABLE_SIZE];
+    private final int[] tableIndexes = new int[TABLE_SIZE];
+    private final int[] palette = new int[MAX_COLORS];
+    private int colors;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    private byte[] raw = new byte[0];
+    private byte[] compressed = new byte[0];
+
+    /**
+     * Write an image as a PNG
+     * @param image an image of type {@link BufferedImage#TYPE_INT_RGB}
+     * @param out where to write the file, which is not closed
+     * @throws IOException if writing fails
+     */
+    public void write(BufferedImage image, OutputStream out) throws IOException {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("only TYPE_INT_RGB images are supported");
+        }
+        int width = image.getWidth(), height = image.getHeight();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        boolean indexed = buildPalette(pixels, width * height);
+        int length = indexed ? fillIndexed(pixels, width, height) : fillRgb(pixels, width, height);
+        int compressedLength = compress(length);
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(SIGNATURE);
+
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = (byte) (indexed ? 3 : 2);
+        chunk(data, "IHDR", header, header.length);
+
+        if (indexed) {
+            byte[] plte = new byte[colors * 3];
+            for (int i = 0; i < colors; ++i) {
+                plte[i * 3] = (byte) (palette[i] >> 16);
+                plte[i * 3 + 1] = (byte) (palette[i] >> 8);
+                plte[i * 3 + 2] = (byte) palette[i];
+            }
+            chunk(data, "PLTE", plte, plte.length);
+        }
+        chunk(data, "IDAT", compressed, compressedLength);
+        chunk(data, "IEND", compressed, 0);
+        data.flush();
+    }
+
+    /**
+     * Convert an image to a palette image if it has few enough colors, so
+     * the GIF writer does not have to work out a palette itself. The result
+     * never shares pixels with the image, which may be a renderer's
+     * reusable image that is drawn over before the result is written.
+     * @param image an image of type {@link BufferedImage#TYPE_INT_RGB}
+     * @return a new palette image, or a copy of the image if it has too many colors
+     */
+    public BufferedImage toIndexed(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            return copyOf(image);
+        }
+        int width = image.getWidth(), height = image.getHeight();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (!buildPalette(pixels, width * height)) {
+            return copyOf(image);
+        }
+        IndexColorModel model = new IndexColorModel(8, colors, palette, 0, false, -1, 0);
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, model);
+        WritableRaster raster = result.getRaster();
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                row[x] = (byte) indexOf(pixels[y * width + x]);
+            }
+            raster.setDataElements(0, y, width, 1, row);
+        }
+        return result;
+    }
+
+    /**
+     * Copy an image's pixels into a new image of the same type
+     * @param image the image
+     * @return the copy
+     */
+    private static BufferedImage copyOf(BufferedImage image) {
+        return new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Collect the colors of an image
+     * @param pixels the image's pixels
+     * @param count number of pixels
+     * @return false if there are more than 256 colors
+     */
+    private boolean buildPalette(int[] pixels, int count) {
+        Arrays.fill(tableIndexes, -1);
+        colors = 0;
+        int last = ~pixels[0];
+        for (int i = 0; i < count; ++i) {
+            int color = pixels[i] & 0xFFFFFF;
+            if (color == last) {
+                continue;
+            }
+            last = color;
+            int slot = slot(color);
+            if (tableIndexes[slot] < 0) {
+                if (colors == MAX_COLORS) {
+                    return false;
+                }
+                tableColors[slot] = color;
+                tableIndexes[slot] = colors;
+                palette[colors++] = color;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find a color's slot in the lookup table
+     * @param color RGB color
+     * @return the slot holding the color, or the empty slot where it belongs
+     */
+    private int slot(int color) {
+        int slot = (color * 0x9E3779B1) >>> 22;
+        while (tableIndexes[slot] >= 0 && tableColors[slot] != color) {
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Get the palette index of a color collected by {@link #buildPalette}
+     * @param pixel RGB color
+     * @return palette index
+     */
+    private int indexOf(int pixel) {
+        return tableIndexes[slot(pixel & 0xFFFFFF)];
+    }
+
+    /**
+     * Lay out the rows as palette indexes, each after a "no filter" byte
+     * @return number of bytes
+     */
+    private int fillIndexed(int[] pixels, int width, int height) {
+        int length = height * (width + 1);
+        ensureRaw(length);
+        int p = 0, last = -1, index = 0;
+        for (int y = 0; y < height; ++y) {
+            raw[p++] = 0;
+            for (int x = 0; x < width; ++x) {
+                int pixel = pixels[y * width + x];
+                if (pixel != last) {
+                    last = pixel;
+                    index = indexOf(pixel);
+                }
+                raw[p++] = (byte) index;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Lay out the rows as RGB triples, each after a "no filter" byte
+     * @return number of bytes
+     */
+    private int fillRgb(int[] pixels, int width, int height) {
+        int length = height * (width * 3 + 1);
+        ensureRaw(length);
+        int p = 0;
+        for (int y = 0; y < height; ++y) {
+            raw[p++] = 0;
+            for (int x = 0; x < width; ++x) {
+                int pixel = pixels[y * width + x];
+                raw[p++] = (byte) (pixel >> 16);
+                raw[p++] = (byte) (pixel >> 8);
+                raw[p++] = (byte) pixel;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Grow the uncompressed buffer if needed
+     * @param length bytes needed
+     */
+    private void ensureRaw(int length) {
+        if (raw.length < length) {
+            raw = new byte[length];
+        }
+    }
+
+    /**
+     * Compress the laid out rows into a zlib stream
+     * @param length bytes to compress
+     * @return compressed length
+     */
+    private int compress(int length) {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        int size = 0;
+        if (compressed.length < 1024) {
+            compressed = new byte[Math.max(1024, length / 8)];
+        }
+        while (!deflater.finished()) {
+            if (size == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        return size;
+    }
+
+    /**
+     * Write one chunk with its length and checksum
+     * @param out the file
+     * @param type four letter chunk type
+     * @param data chunk contents
+     * @param length bytes of data to write
+     */
+    private void chunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Store a big-endian int
+     */
+    private static void putInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+}
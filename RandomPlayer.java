@@ -0,0 +1,42 @@
+import java.util.SplittableRandom;
+
+/**
+ * Plays a uniformly random non-empty pit
+ * @author Ashton Headley
+ */
+public class RandomPlayer implements MancalaPlayer {
+
+    private final SplittableRandom random;
+
+    /**
+     * Initialize the class
+     * @param seed random seed, so runs can be repeated
+     */
+    public RandomPlayer(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int chooseMove(Model model) {
+        int[] pits = model.getPitStones();
+        int pitsPerSide = model.getGeometry().getPitsPerSide();
+        int legal = 0;
+        for (int pit = 0; pit < pitsPerSide; ++pit) {
+            if (pits[pit] > 0) {
+                legal++;
+            }
+        }
+        if (legal == 0) {
+            return -1;
+        }
+
+        // pick the n-th non-empty pit
+        int n = random.nextInt(legal);
+        for (int pit = 0; pit < pitsPerSide; ++pit) {
+            if (pits[pit] > 0 && n-- == 0) {
+                return pit;
+            }
+        }
+        return -1;
+    }
+}
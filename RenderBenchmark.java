@@ -0,0 +1,60 @@
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how long {@link MancalaGame} takes to paint a frame and how much
+ * it allocates, for both board styles, at the start of a game and with all
+ * 48 stones in one store. Runs without a screen.
+ *
+ * Usage: java -Djava.awt.headless=true RenderBenchmark [frames]
+ * @author Ashton Headley
+ */
+public class RenderBenchmark {
+
+    /**
+     * Paint frames offscreen and print the frame statistics
+     * @param args optional number of measured frames per case
+     */
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        int[] fullStore = new int[MoveEngine.SLOTS];
+        fullStore[MoveEngine.STORE_ONE] = 48;
+
+        for (int style = 0; style < 2; ++style) {
+            for (int position = 0; position < 2; ++position) {
+                Model model = new Model();
+                BoardStrategy board = style == 0 ? new DefaultBoard(model) : new BeachBoard(model);
+                MancalaGame game = new MancalaGame(model, board);
+                game.setBackground(board.backgroundColor);
+                model.setInitialStonesPerPit(4);
+                if (position == 1) {
+                    model.setPosition(fullStore, 1);
+                }
+
+                Dimension size = board.getSize();
+                game.setSize(size);
+                BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+
+                // warm up, then measure
+                for (int pass = 0; pass < 2; ++pass) {
+                    game.getFrameStats().reset();
+                    long bytes = threads.getCurrentThreadAllocatedBytes();
+                    for (int i = 0; i < frames; ++i) {
+                        Graphics2D g = image.createGraphics();
+                        game.paintComponent(g);
+                        g.dispose();
+                    }
+                    bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+                    if (pass == 1) {
+                        System.out.printf("%-8s %-11s %s  %d bytes/frame%n", style == 0 ? "default" : "beach",
+                                position == 0 ? "start" : "48 in store", game.getFrameStats(), bytes / frames);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The rules of one variant of the game: when the last stone captures,
+ * and what happens to the stones left when a row runs out.
+ *
+ * Every variant sows the same way, each stone into the next slot of the
+ * mover's cycle, so where a move's stones go depends only on the board,
+ * the player, the pit and the number of stones. Before the first move on
+ * a board of a given size, a variant works all of that out into a
+ * {@link MoveTable}: the next slot of each slot for each player, and for
+ * each player, pit and stone count modulo the length of a lap, the slot
+ * the last stone lands in, whether that gives an extra turn and whether
+ * the variant's capture rule has to be checked there. Applying a move is
+ * then table lookups, and the variant is only asked about a capture where
+ * one can happen. The table also holds, for each of those moves, how many
+ * stones every slot gets, so a move can be applied as a few additions
+ * over the whole board instead of stone by stone.
+ *
+ * A capture is described by one int of at most {@link #CAPTURE_BITS}
+ * bits, in a form each variant chooses, so that {@link #uncapture} can
+ * take it back for the undo history; 0 means nothing was captured.
+ * @author Ashton Headley
+ */
+public abstract class RuleVariant {
+
+    /**
+     * Most bits a capture is described with
+     */
+    public static final int CAPTURE_BITS = 20;
+
+    /**
+     * The rules the game has always used
+     */
+    public static final RuleVariant KALAH = new KalahRules();
+
+    /**
+     * Kalah, except landing in an empty pit of your own captures even when the pit across is empty
+     */
+    public static final RuleVariant EMPTY_CAPTURE = new EmptyCaptureRules();
+
+    /**
+     * Kalah, except the stones left when a row runs out are not added to either store
+     */
+    public static final RuleVariant NO_SWEEP = new NoSweepRules();
+
+    /**
+     * Captures made on the opponent's side, by making their pits hold two or three stones
+     */
+    public static final RuleVariant OWARE_CAPTURE = new OwareCaptureRules();
+
+    private static final RuleVariant[] VARIANTS = { KALAH, EMPTY_CAPTURE, NO_SWEEP, OWARE_CAPTURE };
+
+    private final String name;
+    private final AtomicReferenceArray<MoveTable> tables = new AtomicReferenceArray<>(BoardGeometry.MAX_PITS + 1);
+
+    /**
+     * Initialize the class
+     * @param name the name players see
+     */
+    protected RuleVariant(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the variants that come with the game
+     * @return a new array of the variants, Kalah first
+     */
+    public static RuleVariant[] values() {
+        return VARIANTS.clone();
+    }
+
+    /**
+     * Find a variant by name, ignoring case and anything but letters, so
+     * "oware-capture" on a command line finds {@link #OWARE_CAPTURE}
+     * @param name the name
+     * @return the variant
+     * @throws IllegalArgumentException if no variant has the name
+     */
+    public static RuleVariant forName(String name) {
+        String wanted = name.replaceAll("[^A-Za-z]", "");
+        for (RuleVariant variant : VARIANTS) {
+            if (variant.name.replaceAll("[^A-Za-z]", "").equalsIgnoreCase(wanted)) {
+                return variant;
+            }
+        }
+        throw new IllegalArgumentException("unknown rules: " + name);
+    }
+
+    /**
+     * Get the name of the variant
+     * @return the name players see
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the compiled moves for a board size, compiling them the first time
+     * @param geometry the board size
+     * @return the move table
+     */
+    public MoveTable getTable(BoardGeometry geometry) {
+        MoveTable table = tables.get(geometry.getPitsPerSide());
+        if (table == null) {
+            // two threads may both compile it; the tables are equal, so either can win
+            tables.compareAndSet(geometry.getPitsPerSide(), null, new MoveTable(geometry, this));
+            table = tables.get(geometry.getPitsPerSide());
+        }
+        return table;
+    }
+
+    /**
+     * Whether the capture rule has to be checked when the last stone lands in a slot.
+     * Called while compiling a {@link MoveTable}, so it must only depend on its arguments.
+     * @param geometry the board size
+     * @param player the player who moved
+     * @param slot where the last stone landed, not the mover's store
+     * @return true if a capture is possible there
+     */
+    protected abstract boolean canCapture(BoardGeometry geometry, int player, int slot);
+
+    /**
+     * Make the capture, if any, of a move whose last stone landed in a
+     * slot {@link #canCapture} allows
+     * @param pits the board after sowing
+     * @param geometry the board size
+     * @param player the player who moved
+     * @param slot where the last stone landed
+     * @return the capture, or 0 if there was none
+     */
+    protected abstract int capture(int[] pits, BoardGeometry geometry, int player, int slot);
+
+    /**
+     * Take back a capture made by {@link #capture}
+     * @param pits the board after the move
+     * @param geometry the board size
+     * @param player the player who moved
+     * @param capture the capture, not 0
+     */
+    protected abstract void uncapture(int[] pits, BoardGeometry geometry, int player, int capture);
+
+    /**
+     * Whether the stones left on the board go to their owners when a row runs out
+     * @return true if the rows are swept into the stores at the end
+     */
+    public boolean sweepsAtEnd() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Where every move goes on one board size, under one variant's rules
+     */
+    public static final class MoveTable {
+
+        /**
+         * Bits of an entry of {@link #getMove} holding the landing slot
+         */
+        public static final int LANDING_MASK = 0x1F;
+
+        /**
+         * Set in an entry of {@link #getMove} when the last stone lands in the mover's store
+         */
+        public static final int EXTRA_TURN = 1 << 5;
+
+        /**
+         * Set in an entry of {@link #getMove} when the variant's capture rule applies at the landing slot
+         */
+        public static final int CAPTURE = 1 << 6;
+
+        private final BoardGeometry geometry;
+        private final RuleVariant variant;
+        private final int cycle;
+
+        // next[player - 1][slot]: the slot after slot in the player's cycle
+        private final int[][] next;
+
+        // moves[player - 1][pit * cycle + remainder]: landing slot and flags
+        private final int[][] moves;
+
+        // deals[player - 1][(pit * cycle + remainder) * slots + slot]: stones the remainder puts in slot
+        private final int[][] deals;
+
+        // laps[player - 1][slot]: stones one full lap puts in slot
+        private final int[][] laps;
+
+        MoveTable(BoardGeometry geometry, RuleVariant variant) {
+            this.geometry = geometry;
+            this.variant = variant;
+            int slots = geometry.getSlots();
+            int pitsPerSide = geometry.getPitsPerSide();
+            cycle = geometry.getCycle();
+            next = new int[2][slots];
+            moves = new int[2][pitsPerSide * cycle];
+            deals = new int[2][pitsPerSide * cycle * slots];
+            laps = new int[2][slots];
+
+            for (int player = 1; player <= 2; ++player) {
+                int skip = geometry.storeOf(3 - player);
+                int store = geometry.storeOf(player);
+                for (int slot = 0; slot < slots; ++slot) {
+                    int after = (slot + 1) % slots;
+                    next[player - 1][slot] = after == skip ? (after + 1) % slots : after;
+                    laps[player - 1][slot] = slot == skip ? 0 : 1;
+                }
+                int offset = geometry.offsetOf(player);
+                int[] deal = deals[player - 1];
+                for (int pit = 0; pit < pitsPerSide; ++pit) {
+                    int landing = offset + pit;
+                    for (int remainder = 0; remainder < cycle; ++remainder) {
+                        int index = pit * cycle + remainder;
+                        if (remainder > 0) {
+                            // one more stone than the remainder before, where this one lands
+                            System.arraycopy(deal, (index - 1) * slots, deal, index * slots, slots);
+                            deal[index * slots + landing]++;
+                        }
+                        // full laps end where they started, so only the remainder moves the last stone
+                        int entry = landing;
+                        if (landing == store) {
+                            entry |= EXTRA_TURN;
+                        } else if (variant.canCapture(geometry, player, landing)) {
+                            entry |= CAPTURE;
+                        }
+                        moves[player - 1][index] = entry;
+                        landing = next[player - 1][landing];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get the slot after each slot in a player's cycle, which skips the opponent's store.
+         * The array is shared, do not modify it.
+         * @param player 1 or 2
+         * @return the next slot, indexed by slot
+         */
+        public int[] getNext(int player) {
+            return next[player - 1];
+        }
+
+        /**
+         * Get where a move's last stone lands
+         * @param player 1 or 2
+         * @param pit pit relative to the player, 0 to pits per side - 1
+         * @param stones stones sown, at least 1
+         * @return the landing slot in the bits of {@link #LANDING_MASK}, with {@link #EXTRA_TURN} and {@link #CAPTURE}
+         */
+        public int getMove(int player, int pit, int stones) {
+            return moves[player - 1][pit * cycle + stones % cycle];
+        }
+
+        /**
+         * Get every move's landing slot and flags, as {@link #getMove} returns them.
+         * The array is shared, do not modify it.
+         * @param player 1 or 2
+         * @return the entries, indexed by relative pit * cycle + stones modulo the cycle
+         */
+        public int[] getMoves(int player) {
+            return moves[player - 1];
+        }
+
+        /**
+         * Get the stones every move puts in each slot, not counting full laps.
+         * The array is shared, do not modify it.
+         * @param player 1 or 2
+         * @return for the move of {@link #getMoves} index i, the stones for each slot from i * slots
+         */
+        public int[] getDeals(int player) {
+            return deals[player - 1];
+        }
+
+        /**
+         * Get the stones one full lap puts in each slot: one, except in the opponent's store.
+         * The array is shared, do not modify it.
+         * @param player 1 or 2
+         * @return stones per lap, indexed by slot
+         */
+        public int[] getLap(int player) {
+            return laps[player - 1];
+        }
+
+        /**
+         * Get the board size the table is for
+         * @return the geometry
+         */
+        public BoardGeometry getGeometry() {
+            return geometry;
+        }
+
+        /**
+         * Get the rules the table was compiled from
+         * @return the variant
+         */
+        public RuleVariant getVariant() {
+            return variant;
+        }
+
+        /**
+         * Get the number of slots a player sows into
+         * @return slots in one lap
+         */
+        public int getCycle() {
+            return cycle;
+        }
+    }
+}
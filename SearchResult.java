@@ -0,0 +1,61 @@
+/**
+ * The outcome of a search for the best move
+ * @author Ashton Headley
+ */
+public class SearchResult {
+
+    /**
+     * Best pit 0-5 relative to the player to move, or -1 if there is no legal move
+     */
+    public final int pit;
+
+    /**
+     * Score of the best move from the mover's point of view
+     */
+    public final int score;
+
+    /**
+     * Deepest fully completed iteration
+     */
+    public final int depth;
+
+    /**
+     * Positions visited during the whole search
+     */
+    public final long nodes;
+
+    /**
+     * Wall-clock time spent searching in nanoseconds
+     */
+    public final long elapsedNanos;
+
+    /**
+     * Initialize the class
+     * @param pit best pit
+     * @param score score of the best pit
+     * @param depth completed depth
+     * @param nodes positions visited
+     * @param elapsedNanos time spent
+     */
+    public SearchResult(int pit, int score, int depth, long nodes, long elapsedNanos) {
+        this.pit = pit;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the search speed
+     * @return positions visited per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos > 0 ? nodes * 1_000_000_000L / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "pit " + pit + " score " + score + " depth " + depth + " nodes " + nodes
+                + " time " + (elapsedNanos / 1_000_000) + "ms " + getNodesPerSecond() + " nodes/s";
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures one thread playing a game while other threads watch it, with
+ * three ways for the watchers to read the board:
+ * <ul>
+ * <li>snapshot: {@link Model#getSnapshot()}, no locking</li>
+ * <li>locked: the player and the watchers share a lock, and watchers copy {@link Model#getPitStones()}</li>
+ * <li>unsafe: watchers read {@link Model#getPitStones()} without a lock</li>
+ * </ul>
+ * Each read is checked to add up to the stones in the game; reads that
+ * do not are counted as torn.
+ *
+ * Usage: java SnapshotBenchmark [millis per run] [largest reader count]
+ * @author Ashton Headley
+ */
+public class SnapshotBenchmark {
+
+    private static final int STONES = 4;
+    private static final int TOTAL = STONES * 2 * MoveEngine.PITS_PER_SIDE;
+
+    private final String mode;
+    private final Model model = new Model();
+    private final Object lock = new Object();
+    private volatile boolean running = true;
+
+    private long moves;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder torn = new LongAdder();
+    private final LongAdder versions = new LongAdder();
+
+    /**
+     * Initialize the class
+     * @param mode snapshot, locked or unsafe
+     */
+    private SnapshotBenchmark(String mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Run every mode with 1, 2, 4... readers
+     * @param args optional run length in milliseconds and largest number of readers
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        int maxReaders = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        System.out.printf("%-9s %7s %14s %14s %10s %14s%n", "mode", "readers", "moves/s", "reads/s", "torn", "states seen");
+        for (String mode : new String[] {"snapshot", "locked", "unsafe"}) {
+            for (int readers = 1; readers <= maxReaders; readers *= 2) {
+                new SnapshotBenchmark(mode).run(readers, millis);
+            }
+        }
+    }
+
+    /**
+     * Play and watch for a while, then print the counts
+     * @param readerCount number of watching threads
+     * @param millis how long to run
+     */
+    private void run(int readerCount, long millis) throws InterruptedException {
+        model.setInitialStonesPerPit(STONES);
+        model.enableSnapshots();
+
+        Thread writer = new Thread(this::write, "player");
+        Thread[] readers = new Thread[readerCount];
+        for (int i = 0; i < readerCount; ++i) {
+            readers[i] = new Thread(this::read, "spectator-" + i);
+        }
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        long start = System.nanoTime();
+        writer.start();
+        Thread.sleep(millis);
+        running = false;
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-9s %7d %14.0f %14.0f %10d %14s%n", mode, readerCount,
+                moves / seconds, reads.sum() / seconds, torn.sum(),
+                mode.equals("snapshot") ? Long.toString(versions.sum()) : "-");
+    }
+
+    /**
+     * Play random games until stopped
+     */
+    private void write() {
+        SplittableRandom random = new SplittableRandom(1);
+        long count = 0;
+        while (running) {
+            if (mode.equals("locked")) {
+                synchronized (lock) {
+                    step(random);
+                }
+            } else {
+                step(random);
+            }
+            ++count;
+        }
+        moves = count;
+    }
+
+    /**
+     * Make one random move, or start a new game when the last one ended
+     * @param random move source
+     */
+    private void step(SplittableRandom random) {
+        if (model.getWinningPlayer() >= 0) {
+            model.setInitialStonesPerPit(STONES);
+            return;
+        }
+        int[] pits = model.getPitStones();
+        int pit;
+        do {
+            pit = random.nextInt(MoveEngine.PITS_PER_SIDE);
+        } while (pits[pit] == 0);
+        model.doPlayerTurn(pit);
+        model.confirmTurn();
+    }
+
+    /**
+     * Read the board until stopped, checking every read
+     */
+    private void read() {
+        int[] view = new int[MoveEngine.SLOTS];
+        long count = 0, bad = 0, seen = 0, last = -1;
+        while (running) {
+            int sum = 0;
+            if (mode.equals("snapshot")) {
+                BoardSnapshot snapshot = model.getSnapshot();
+                for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+                    sum += snapshot.get(slot);
+                }
+                if (snapshot.version != last) {
+                    last = snapshot.version;
+                    ++seen;
+                }
+            } else {
+                if (mode.equals("locked")) {
+                    synchronized (lock) {
+                        System.arraycopy(model.getPitStones(), 0, view, 0, MoveEngine.SLOTS);
+                    }
+                } else {
+                    System.arraycopy(model.getPitStones(), 0, view, 0, MoveEngine.SLOTS);
+                }
+                for (int stones : view) {
+                    sum += stones;
+                }
+            }
+            if (sum != TOTAL) {
+                ++bad;
+            }
+            ++count;
+        }
+        reads.add(count);
+        torn.add(bad);
+        versions.add(seen);
+    }
+}
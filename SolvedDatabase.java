@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Exact values of every position with up to some number of stones in the
+ * pits, in a directory written by {@link KalahSolver}.
+ *
+ * Values mean the same as in {@link EndgameTable}: one signed byte per
+ * position, the most the player to move can finish ahead by on the stones
+ * still in the pits, ranked the same way. Each stone count is its own
+ * file, level-NN.db, so no file is limited by how much of it can be
+ * mapped, and the files are read through a cache of fixed-size pages that
+ * never holds more than its configured size in memory. When it is full,
+ * the page to drop is chosen with the clock algorithm, so pages still in
+ * use stay. Pages are never changed once read, so threads share them
+ * without locking; only reading a page from disk is done one at a time.
+ *
+ * Since it is an {@link EndgameTable}, {@link ComputerPlayer} and
+ * {@link AlphaBetaSearch} can use it as their endgame table.
+ * @author Ashton Headley
+ */
+public class SolvedDatabase extends EndgameTable implements AutoCloseable {
+
+    /**
+     * Name of the checkpoint file in the directory
+     */
+    public static final String CHECKPOINT = "solver.properties";
+
+    /**
+     * Largest number of stones on the board of the standard games, 6 pits of 4 stones a side
+     */
+    public static final int MAX_LEVEL = 48;
+
+    /**
+     * Bytes per cache page
+     */
+    static final int PAGE_BITS = 16;
+
+    private final Path directory;
+    private final int levels;
+    private final FileChannel[] files;
+
+    // every page of every level has a place here, empty unless it is cached
+    private final long[] firstPage;
+    private final AtomicReferenceArray<byte[]> pages;
+    private final byte[] referenced;
+
+    // the cached pages in the order the clock hand visits them, -1 for a free place
+    private final int[] clock;
+    private int hand;
+
+    /**
+     * Open the solved levels of a directory
+     * @param directory the directory written by {@link KalahSolver}
+     * @param cacheMegabytes most memory for cached pages
+     * @return the database
+     * @throws IOException if the directory has no solved levels or cannot be read
+     */
+    public static SolvedDatabase open(Path directory, int cacheMegabytes) throws IOException {
+        Properties checkpoint = readCheckpoint(directory);
+        int completed = Integer.parseInt(checkpoint.getProperty("completed", "0"));
+        if (completed == 0) {
+            throw new IOException(directory + " has no solved levels");
+        }
+        return new SolvedDatabase(directory, completed, cacheMegabytes);
+    }
+
+    /**
+     * Initialize the class over the levels solved so far
+     * @param directory the directory of level files
+     * @param levels number of stone counts, from 0, that are solved
+     * @param cacheMegabytes most memory for cached pages
+     * @throws IOException if a level file cannot be opened
+     */
+    SolvedDatabase(Path directory, int levels, int cacheMegabytes) throws IOException {
+        super(MAX_LEVEL, levels, null);
+        this.directory = directory;
+        this.levels = levels;
+        files = new FileChannel[levels];
+        for (int n = 0; n < levels; ++n) {
+            files[n] = FileChannel.open(levelFile(directory, n), StandardOpenOption.READ);
+        }
+        firstPage = new long[levels + 1];
+        for (int n = 0; n < levels; ++n) {
+            firstPage[n + 1] = firstPage[n] + ((levelSize(n) + (1 << PAGE_BITS) - 1) >>> PAGE_BITS);
+        }
+        pages = new AtomicReferenceArray<>(Math.toIntExact(firstPage[levels]));
+        referenced = new byte[pages.length()];
+        clock = new int[Math.max(1, cacheMegabytes << (20 - PAGE_BITS))];
+        Arrays.fill(clock, -1);
+    }
+
+    /**
+     * Get the file of one stone count
+     * @param directory the database directory
+     * @param stones stones in the pits
+     * @return the level file
+     */
+    static Path levelFile(Path directory, int stones) {
+        return directory.resolve(String.format("level-%02d.db", stones));
+    }
+
+    /**
+     * Read the checkpoint of a directory
+     * @param directory the database directory
+     * @return the saved progress, empty if there is none
+     * @throws IOException if the file exists but cannot be read
+     */
+    static Properties readCheckpoint(Path directory) throws IOException {
+        Properties checkpoint = new Properties();
+        Path file = directory.resolve(CHECKPOINT);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                checkpoint.load(in);
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Look up a position given as twelve pits
+     * @param pits mover's pits 0-5 then the opponent's pits 0-5
+     * @param stones their total, below {@link #getLevels()}
+     * @return how far ahead the mover finishes on the remaining stones
+     */
+    @Override
+    int get(int[] pits, int stones) {
+        return read(stones, rank(pits, stones));
+    }
+
+    /**
+     * Look up a position
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return how many more of the remaining pit stones the player to move
+     * ends up with than the opponent under perfect play, or {@link #UNKNOWN}
+     * if the position has more stones than are solved
+     */
+    @Override
+    public int probe(long hi, long lo) {
+        int stones = PackedBoard.stonesInPits(hi, lo);
+        if (stones >= levels) {
+            return UNKNOWN;
+        }
+        int mover = PackedBoard.sideToMove(hi);
+        int[] pits = new int[PITS];
+        int own = MoveEngine.offsetOf(mover), other = MoveEngine.offsetOf(3 - mover);
+        for (int i = 0; i < MoveEngine.PITS_PER_SIDE; ++i) {
+            pits[i] = PackedBoard.get(hi, lo, own + i);
+            pits[i + MoveEngine.PITS_PER_SIDE] = PackedBoard.get(hi, lo, other + i);
+        }
+        return read(stones, rank(pits, stones));
+    }
+
+    /**
+     * Get the largest stone count that can be probed
+     * @return stones in the pits the database fully covers
+     */
+    @Override
+    public int getMaxStones() {
+        return levels - 1;
+    }
+
+    /**
+     * Get the number of solved stone counts
+     * @return stone counts from 0 that are solved
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * Get the directory of the level files
+     * @return the directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Read one value through the page cache
+     * @param stones the level
+     * @param index rank within the level
+     * @return the value
+     */
+    int read(int stones, long index) {
+        int page = (int) (firstPage[stones] + (index >>> PAGE_BITS));
+        byte[] data = pages.get(page);
+        if (data == null) {
+            data = load(stones, page);
+        } else {
+            referenced[page] = 1;
+        }
+        return data[(int) (index & ((1 << PAGE_BITS) - 1))];
+    }
+
+    /**
+     * Read one page of a level file into the cache, dropping one that has
+     * not been used since the clock hand last passed it
+     */
+    private synchronized byte[] load(int stones, int page) {
+        byte[] data = pages.get(page);
+        if (data != null) {
+            return data;
+        }
+        long start = (page - firstPage[stones]) << PAGE_BITS;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(1 << PAGE_BITS, levelSize(stones) - start));
+        try {
+            while (buffer.hasRemaining()) {
+                if (files[stones].read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("level " + stones + " is shorter than expected");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        data = buffer.array();
+
+        for (int victim = clock[hand]; victim >= 0 && referenced[victim] != 0; victim = clock[hand]) {
+            referenced[victim] = 0;
+            hand = (hand + 1) % clock.length;
+        }
+        if (clock[hand] >= 0) {
+            pages.set(clock[hand], null);
+        }
+        clock[hand] = page;
+        hand = (hand + 1) % clock.length;
+        pages.set(page, data);
+        return data;
+    }
+
+    /**
+     * Close the level files
+     */
+    @Override
+    public void close() throws IOException {
+        for (FileChannel file : files) {
+            file.close();
+        }
+    }
+}
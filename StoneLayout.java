@@ -0,0 +1,207 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Precomputed positions of every stone and count label on a board, so
+ * painting the stones creates no objects.
+ *
+ * The coordinates are worked out once per board style for every slot and
+ * for up to a given number of stones, following the same arrangement the
+ * stones have always been drawn in. Stones are stamped from a small
+ * pre-rendered sprite instead of filling a new ellipse each time.
+ * @author Ashton Headley
+ */
+public class StoneLayout {
+
+    /**
+     * Width and height of a stone
+     */
+    public static final int STONE_SIZE = 15;
+
+    /**
+     * Count labels are cached as strings up to this number
+     */
+    private static final String[] LABELS = new String[256];
+
+    static {
+        for (int i = 0; i < LABELS.length; ++i) {
+            LABELS[i] = Integer.toString(i);
+        }
+    }
+
+    private final Class<?> style;
+    private final BoardGeometry geometry;
+    private final int capacity;
+    private final int[][] stoneX, stoneY;
+    private final int[] labelX, labelY;
+    private final Rectangle[] bounds;
+
+    private BufferedImage sprite;
+    private Color spriteColor;
+
+    /**
+     * Compute the layout of a board
+     * @param strategy the board style
+     * @param capacity most stones a single slot will have to show
+     */
+    public StoneLayout(BoardStrategy strategy, int capacity) {
+        this.style = strategy.getClass();
+        this.geometry = strategy.game.getGeometry();
+        this.capacity = capacity;
+        int slots = geometry.getSlots();
+        stoneX = new int[slots][capacity];
+        stoneY = new int[slots][capacity];
+        labelX = new int[slots];
+        labelY = new int[slots];
+        bounds = new Rectangle[slots];
+
+        for (int pit = 0; pit < slots; ++pit) {
+            int centerX = strategy.getPitCenterX(pit);
+            int centerY = strategy.getPitCenterY(pit);
+
+            if (geometry.isStore(pit)) {
+                int cx = -3; // extra centering correction
+                int y = strategy.getPitY(pit);
+                for (int i = 0; i < capacity; ++i) {
+                    switch (i % 5) {
+                        case 0:  stoneX[pit][i] = centerX - cx - 40; stoneY[pit][i] = y + (i * 5) - 20; break;
+                        case 1:  stoneX[pit][i] = centerX - cx - 25; stoneY[pit][i] = y + (i * 5) - 20; break;
+                        case 2:  stoneX[pit][i] = centerX - cx - 10; stoneY[pit][i] = y + (i * 5) - 40; break;
+                        case 3:  stoneX[pit][i] = centerX - cx + 5;  stoneY[pit][i] = y + (i * 5) - 50; break;
+                        default: stoneX[pit][i] = centerX - cx + 20; stoneY[pit][i] = y + (i * 5) - 40; break;
+                    }
+                }
+                labelX[pit] = centerX + cx;
+                labelY[pit] = centerY + 150;
+            } else {
+                int cx, cy; // extra centering correction
+                if (pit > geometry.getStoreOne() + geometry.getPitsPerSide() / 2) {
+                    cx = 3;
+                    cy = 6;
+                } else {
+                    cx = 7;
+                    cy = 9;
+                }
+                for (int i = 0; i < capacity; ++i) {
+                    stoneX[pit][i] = centerX - cx + (i * 16);
+                    if (i <= 2) {
+                        stoneY[pit][i] = centerY + cy + 10;
+                    } else if (i <= 6) {
+                        stoneX[pit][i] -= 60;
+                        stoneY[pit][i] = centerY + cy + 25;
+                    } else if (i <= 10) {
+                        stoneX[pit][i] -= 130;
+                        stoneY[pit][i] = centerY + cy + 40;
+                    } else {
+                        stoneX[pit][i] -= 190;
+                        stoneY[pit][i] = centerY + cy + 55;
+                    }
+                }
+                labelX[pit] = centerX + cx;
+                labelY[pit] = centerY + cy + 107;
+            }
+
+            // the count is drawn in the board's font, which can be twice the default size
+            Rectangle area = new Rectangle(labelX[pit] - 5, labelY[pit] - 32, 70, 44);
+            for (int i = 0; i < capacity; ++i) {
+                area.add(new Rectangle(stoneX[pit][i], stoneY[pit][i], STONE_SIZE + 1, STONE_SIZE + 1));
+            }
+            bounds[pit] = area;
+        }
+    }
+
+    /**
+     * Whether this layout can be used for a board
+     * @param strategy the board style
+     * @param stones most stones a slot has to show
+     * @return true if the style and size of board match and there is room for the stones
+     */
+    public boolean fits(BoardStrategy strategy, int stones) {
+        return strategy.getClass() == style && strategy.game.getGeometry() == geometry && stones <= capacity;
+    }
+
+    /**
+     * Get the area a slot's stones and count can cover
+     * @param slot slot index
+     * @return a new rectangle enclosing every stone position and the count label
+     */
+    public Rectangle getBounds(int slot) {
+        return new Rectangle(bounds[slot]);
+    }
+
+    /**
+     * Get the text for a count label
+     * @param count number of stones
+     * @return the count as a string, cached for small counts
+     */
+    static String label(int count) {
+        return count < LABELS.length ? LABELS[count] : Integer.toString(count);
+    }
+
+    /**
+     * Draw the stones and counts of the pits
+     * @param g2 graphics, whose current color is used for the stones
+     * @param pits stones per slot relative to the player to move
+     */
+    public void drawPits(Graphics2D g2, int[] pits) {
+        BufferedImage stone = sprite(g2.getColor());
+        for (int pit = 0; pit < labelX.length; ++pit) {
+            if (geometry.isStore(pit)) {
+                continue;
+            }
+            drawStones(g2, stone, pit, pits[pit]);
+            g2.drawString(label(pits[pit]), labelX[pit], labelY[pit]);
+        }
+    }
+
+    /**
+     * Draw the stones and counts of the two stores
+     * @param g2 graphics, whose current color is used for the stones
+     * @param pits stones per slot relative to the player to move
+     */
+    public void drawStores(Graphics2D g2, int[] pits) {
+        BufferedImage stone = sprite(g2.getColor());
+        for (int pit = geometry.getStoreOne(); pit < labelX.length; pit += geometry.getStoreOne() + 1) {
+            drawStones(g2, stone, pit, pits[pit]);
+
+            // an empty store has never shown a count
+            if (pits[pit] > 0) {
+                g2.drawString(label(pits[pit]), labelX[pit], labelY[pit]);
+            }
+        }
+    }
+
+    /**
+     * Stamp the stones of one slot
+     * @param g2 graphics
+     * @param stone stone sprite
+     * @param pit slot index
+     * @param count stones in the slot
+     */
+    private void drawStones(Graphics2D g2, BufferedImage stone, int pit, int count) {
+        int[] xs = stoneX[pit], ys = stoneY[pit];
+        for (int i = 0; i < count; ++i) {
+            g2.drawImage(stone, xs[i], ys[i], null);
+        }
+    }
+
+    /**
+     * Get the stone sprite in a color, rendering it the first time
+     * @param color stone color
+     * @return the sprite
+     */
+    private BufferedImage sprite(Color color) {
+        if (sprite == null || !color.equals(spriteColor)) {
+            sprite = new BufferedImage(STONE_SIZE, STONE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = sprite.createGraphics();
+            g.setColor(color);
+            g.fill(new Ellipse2D.Double(0, 0, STONE_SIZE, STONE_SIZE));
+            g.dispose();
+            spriteColor = color;
+        }
+        return sprite;
+    }
+}
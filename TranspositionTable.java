@@ -0,0 +1,163 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results kept in two primitive arrays.
+ *
+ * Entries are grouped in buckets of two: the first slot keeps the deepest
+ * result seen for the bucket, the second is overwritten by every other
+ * store. Each entry's data is packed into one long, and the stored key is
+ * XORed with the data so a torn read from another thread simply fails to
+ * match instead of returning a corrupt entry.
+ *
+ * The table writes nothing but entries, so threads sharing it do not
+ * contend on counters; each {@link AlphaBetaSearch} counts its own hits,
+ * misses, collisions and stores.
+ * @author Ashton Headley
+ */
+public class TranspositionTable {
+
+    /**
+     * Bound type: the score is exact
+     */
+    public static final int EXACT = 1;
+
+    /**
+     * Bound type: the real score is at least the stored score
+     */
+    public static final int LOWER = 2;
+
+    /**
+     * Bound type: the real score is at most the stored score
+     */
+    public static final int UPPER = 3;
+
+    /**
+     * Bytes used by one entry, its key and its data
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    /**
+     * Initialize the table
+     * @param megabytes memory to use; rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(2, ((long) megabytes << 20) / ENTRY_BYTES);
+        int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 29));
+        keys = new long[buckets * 2];
+        data = new long[buckets * 2];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Look up a position
+     * @param key Zobrist hash of the position
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int index = ((int) key & bucketMask) << 1;
+        for (int i = index; i < index + 2; ++i) {
+            long entry = data[i];
+            if ((keys[i] ^ entry) == key && entry != 0) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Whether the bucket of a position holds any entry, to tell a miss
+     * on other positions from a miss on an empty bucket
+     * @param key Zobrist hash of the position
+     * @return true if either entry of the bucket is used
+     */
+    public boolean isBucketUsed(long key) {
+        int index = ((int) key & bucketMask) << 1;
+        return data[index] != 0 || data[index + 1] != 0;
+    }
+
+    /**
+     * Store a search result
+     * @param key Zobrist hash of the position
+     * @param depth depth the position was searched to
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @param score score from the point of view of the player to move
+     * @param move best pit found, or -1
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        int index = ((int) key & bucketMask) << 1;
+        long entry = (score & 0xFFFFFFFFL)
+                | (long) (depth & 0xFF) << 32
+                | (long) bound << 40
+                | (long) (move + 1) << 42;
+
+        long old = data[index];
+        if (old == 0 || (keys[index] ^ old) == key || depth >= depth(old)) {
+            keys[index] = key ^ entry;
+            data[index] = entry;
+        } else {
+            keys[index + 1] = key ^ entry;
+            data[index + 1] = entry;
+        }
+    }
+
+    /**
+     * Get the score of an entry
+     * @param entry a packed entry
+     * @return the score
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Get the search depth of an entry
+     * @param entry a packed entry
+     * @return the depth
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * Get the bound type of an entry
+     * @param entry a packed entry
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Get the best move of an entry
+     * @param entry a packed entry
+     * @return the pit, or -1
+     */
+    public static int move(long entry) {
+        return ((int) (entry >>> 42) & 0xF) - 1;
+    }
+
+    /**
+     * Remove every entry
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Get the memory used by the entries
+     * @return size in bytes
+     */
+    public long getSizeBytes() {
+        return (long) keys.length * ENTRY_BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return (getSizeBytes() >> 20) + "MB";
+    }
+}
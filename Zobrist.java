@@ -0,0 +1,96 @@
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of {@link PackedBoard} positions.
+ *
+ * Every (slot, stone count) pair and the side to move has a random key, and
+ * a position's hash is the XOR of the keys that apply to it. After a move
+ * only the slots whose counts changed have to be XORed out and in again.
+ * @author Ashton Headley
+ */
+public final class Zobrist {
+
+    /**
+     * Number of distinct stone counts per slot, enough for an 8-bit store
+     */
+    private static final int COUNTS = 1 << PackedBoard.STORE_BITS;
+
+    private static final long[] KEYS = new long[MoveEngine.SLOTS * COUNTS];
+    private static final long SIDE_KEY;
+
+    static {
+        // fixed seed so hashes are the same in every run
+        SplittableRandom random = new SplittableRandom(0x4D414E43414C41L);
+        for (int i = 0; i < KEYS.length; ++i) {
+            KEYS[i] = random.nextLong();
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    /**
+     * Hash a position from scratch
+     * @param hi player 2's side
+     * @param lo player 1's side
+     * @return the position's hash
+     */
+    public static long hash(long hi, long lo) {
+        long key = PackedBoard.sideToMove(hi) == 2 ? SIDE_KEY : 0;
+        for (int slot = 0; slot < MoveEngine.SLOTS; ++slot) {
+            key ^= KEYS[slot * COUNTS + PackedBoard.get(hi, lo, slot)];
+        }
+        return key;
+    }
+
+    /**
+     * Update a hash after a move by XORing only the slots that changed
+     * @param key hash of the old position
+     * @param oldHi player 2's side before the move
+     * @param oldLo player 1's side before the move
+     * @param newHi player 2's side after the move
+     * @param newLo player 1's side after the move
+     * @return hash of the new position
+     */
+    public static long update(long key, long oldHi, long oldLo, long newHi, long newLo) {
+        key = updateSide(key, oldLo, newLo, 0);
+
+        long hiDiff = oldHi ^ newHi;
+        if ((hiDiff >>> PackedBoard.SIDE_SHIFT) != 0) {
+            key ^= SIDE_KEY;
+        }
+        return updateSide(key, oldHi, newHi, 7);
+    }
+
+    /**
+     * XOR out and in the slots of one side that changed
+     * @param key current hash
+     * @param before the side before the move
+     * @param after the side after the move
+     * @param base absolute index of the side's first slot
+     * @return updated hash
+     */
+    private static long updateSide(long key, long before, long after, int base) {
+        long diff = (before ^ after) & ((1L << PackedBoard.SIDE_SHIFT) - 1);
+        while (diff != 0) {
+            int bit = Long.numberOfTrailingZeros(diff);
+            int local = bit < PackedBoard.STORE_SHIFT ? bit / PackedBoard.PIT_BITS : MoveEngine.PITS_PER_SIDE;
+            int slot = base + local;
+            int shift, width;
+            if (local == MoveEngine.PITS_PER_SIDE) {
+                shift = PackedBoard.STORE_SHIFT;
+                width = PackedBoard.STORE_BITS;
+            } else {
+                shift = local * PackedBoard.PIT_BITS;
+                width = PackedBoard.PIT_BITS;
+            }
+            long mask = (1L << width) - 1;
+            key ^= KEYS[slot * COUNTS + (int) ((before >>> shift) & mask)];
+            key ^= KEYS[slot * COUNTS + (int) ((after >>> shift) & mask)];
+
+            // clear the whole lane so it is only handled once
+            diff &= ~(mask << shift);
+        }
+        return key;
+    }
+}